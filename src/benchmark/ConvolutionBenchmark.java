@@ -0,0 +1,114 @@
+package benchmark;
+
+import java.util.Random;
+import model.image.BorderMode;
+import model.image.Image;
+import model.image.Kernel;
+import model.image.PackedImage;
+
+/**
+ * Finds the kernel size at which convolving through a Fourier transform becomes faster than
+ * direct convolution. Each kernel of random weights, which does not separate into cheaper passes,
+ * is applied to the same random image with both methods, and the results are checked against
+ * each other. Square kernels are interleaved with kernels two rows taller, so the number of taps
+ * at the crossover is found more finely than square kernels alone would allow.
+ *
+ * <p>Usage: {@code java benchmark.ConvolutionBenchmark [width] [height] [repetitions] [maxSize]}
+ */
+public class ConvolutionBenchmark {
+
+  /**
+   * Runs the benchmark and prints a table of timings for each kernel size.
+   */
+  public static void main(String[] args) {
+    int width = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+    int height = args.length > 1 ? Integer.parseInt(args[1]) : 1500;
+    int repetitions = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+    int maxSize = args.length > 3 ? Integer.parseInt(args[3]) : 31;
+
+    int[] pixels = new int[width * height];
+    Random rand = new Random(42);
+    for (int i = 0; i < pixels.length; i += 1) {
+      pixels[i] = rand.nextInt();
+    }
+    Image source = new PackedImage(width, height, width, pixels);
+
+    // Warm up both methods so the first sizes are not timed while they are still being compiled.
+    Kernel warmUp = new Kernel(9, 9, randomWeights(81, rand));
+    time("direct", source, warmUp, repetitions, source.copy());
+    time("fft", source, warmUp, repetitions, source.copy());
+
+    System.out.println("Image: " + width + "x" + height + ", best of " + repetitions);
+    int crossover = 0;
+    int fastestDirect = 0;
+    for (int size = 3; size <= maxSize; size += 2) {
+      for (int kernelHeight = size; kernelHeight <= Math.min(size + 2, maxSize);
+          kernelHeight += 2) {
+        int taps = size * kernelHeight;
+        Kernel kernel = new Kernel(size, kernelHeight, randomWeights(taps, rand));
+        Image direct = source.copy();
+        double directMillis = time("direct", source, kernel, repetitions, direct);
+        Image fft = source.copy();
+        double fftMillis = time("fft", source, kernel, repetitions, fft);
+        System.out.printf("%3dx%-3d taps=%-5d direct %9.1f ms  fft %9.1f ms  max difference %d%n",
+            size, kernelHeight, taps, directMillis, fftMillis, maxDifference(direct, fft));
+        if (fftMillis >= directMillis) {
+          crossover = 0;
+          fastestDirect = taps;
+        } else if (crossover == 0) {
+          crossover = taps;
+        }
+      }
+    }
+    System.clearProperty("image.convolution");
+    if (crossover == 0) {
+      System.out.println("Direct convolution was faster up to the largest size");
+    } else {
+      System.out.println("FFT is faster from " + crossover + " taps, direct up to "
+          + fastestDirect + " taps");
+    }
+  }
+
+  private static float[] randomWeights(int taps, Random rand) {
+    float[] weights = new float[taps];
+    for (int i = 0; i < weights.length; i += 1) {
+      weights[i] = (rand.nextFloat() + 0.5f) / weights.length;
+    }
+    return weights;
+  }
+
+  private static double time(String method, Image source, Kernel kernel, int repetitions,
+      Image result) {
+    System.setProperty("image.convolution", method);
+    long best = Long.MAX_VALUE;
+    for (int i = 0; i < repetitions; i += 1) {
+      Image image = source.copy();
+      long start = System.nanoTime();
+      image.convolve(kernel, BorderMode.CLAMP);
+      best = Math.min(best, System.nanoTime() - start);
+      if (i == 0) {
+        result.setRegion(toArray(image), 0, image.getWidth(), 0, 0, image.getWidth(),
+            image.getHeight());
+      }
+    }
+    return best / 1e6;
+  }
+
+  private static int[] toArray(Image image) {
+    int[] pixels = new int[image.getWidth() * image.getHeight()];
+    image.getRegion(pixels, 0, image.getWidth(), 0, 0, image.getWidth(), image.getHeight());
+    return pixels;
+  }
+
+  private static int maxDifference(Image a, Image b) {
+    int[] x = toArray(a);
+    int[] y = toArray(b);
+    int max = 0;
+    for (int i = 0; i < x.length; i += 1) {
+      for (int shift = 0; shift < 24; shift += 8) {
+        max = Math.max(max, Math.abs(((x[i] >> shift) & 0xFF) - ((y[i] >> shift) & 0xFF)));
+      }
+    }
+    return max;
+  }
+}
@@ -0,0 +1,79 @@
+package benchmark;
+
+import java.util.Random;
+import java.util.function.Consumer;
+import model.image.Image;
+import model.image.PackedImage;
+import model.image.Parallel;
+import model.image.ResampleFilter;
+
+/**
+ * Measures how the per-pixel image operations scale with the number of threads. Each operation is
+ * timed on the same random image with 1, 2, 4, ... threads up to the number of available
+ * processors, and every result is checked against the single-threaded result.
+ *
+ * <p>Usage: {@code java benchmark.ScalingBenchmark [width] [height] [repetitions] [maxThreads]}
+ */
+public class ScalingBenchmark {
+
+  /**
+   * Runs the benchmark and prints a table of timings and speedups.
+   */
+  public static void main(String[] args) {
+    int width = args.length > 0 ? Integer.parseInt(args[0]) : 4000;
+    int height = args.length > 1 ? Integer.parseInt(args[1]) : 3000;
+    int repetitions = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+    int maxThreads = args.length > 3 ? Integer.parseInt(args[3])
+        : Runtime.getRuntime().availableProcessors();
+
+    int[] pixels = new int[width * height];
+    Random rand = new Random(42);
+    for (int i = 0; i < pixels.length; i += 1) {
+      pixels[i] = rand.nextInt();
+    }
+    Image source = new PackedImage(width, height, width, pixels);
+
+    System.out.println("Image: " + width + "x" + height + ", best of " + repetitions);
+    run("blur", source, Image::blurImage, repetitions, maxThreads);
+    run("blur sigma 20", source, image -> image.blurImage(20), repetitions, maxThreads);
+    run("sharpen", source, Image::sharpenImage, repetitions, maxThreads);
+    run("greyscale", source, Image::toGreyscale, repetitions, maxThreads);
+    run("sepia", source, Image::toSepia, repetitions, maxThreads);
+    run("downscale", source, image -> image.downscale(width / 3, height / 3), repetitions,
+        maxThreads);
+    run("resize lanczos3 x2", source,
+        image -> image.resize(width * 2, height * 2, ResampleFilter.LANCZOS3), repetitions,
+        maxThreads);
+  }
+
+  private static void run(String name, Image source, Consumer<Image> operation, int repetitions,
+      int maxThreads) {
+    Image expected = null;
+    double baseline = 0;
+    for (int threads = 1; threads <= maxThreads; threads = nextThreadCount(threads, maxThreads)) {
+      Parallel.setParallelism(threads);
+      long best = Long.MAX_VALUE;
+      Image result = null;
+      for (int i = 0; i < repetitions; i += 1) {
+        result = source.copy();
+        long start = System.nanoTime();
+        operation.accept(result);
+        best = Math.min(best, System.nanoTime() - start);
+      }
+      double millis = best / 1e6;
+      if (expected == null) {
+        expected = result;
+        baseline = millis;
+      }
+      System.out.printf("%-10s threads=%-3d %9.1f ms  speedup %5.2fx  %s%n", name, threads,
+          millis, baseline / millis, expected.equals(result) ? "identical" : "MISMATCH");
+      if (threads == maxThreads) {
+        break;
+      }
+    }
+  }
+
+  private static int nextThreadCount(int threads, int maxThreads) {
+    return Math.min(threads * 2, maxThreads);
+  }
+}
@@ -1,10 +1,20 @@
 package controller;
 
 /**
- * Enumeration for the file types that our program supports.
+ * Enumeration for the file types that our program supports. PPM is the plain text variant of the
+ * format, while PPM_BINARY and PGM are the binary color and greyscale variants.
  */
 public enum FileType {
-  JPG, JPEG, PNG, BMP, WBMP, GIF, PPM;
+  JPG, JPEG, PNG, BMP, WBMP, GIF, PPM, PPM_BINARY, PGM;
+
+  /**
+   * Gets the extension given to files of this type, which is the same for both variants of PPM.
+   *
+   * @return the file extension of this type, without a leading dot
+   */
+  public String extension() {
+    return this == PPM_BINARY ? "ppm" : toString();
+  }
 
   @Override
   public String toString() {
@@ -23,6 +33,10 @@ public enum FileType {
         return "gif";
       case PPM:
         return "ppm";
+      case PPM_BINARY:
+        return "p6";
+      case PGM:
+        return "pgm";
       default:
         break;
     }
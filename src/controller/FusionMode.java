@@ -0,0 +1,36 @@
+package controller;
+
+/**
+ * Enumeration for how a script runs consecutive pointwise commands on the same layer.
+ */
+public enum FusionMode {
+  /**
+   * Runs the commands in one pass, clamping the result of each command before the next, which
+   * gives exactly the same image as running them separately.
+   */
+  EXACT,
+  /**
+   * Multiplies the color matrices of the commands together and applies the product once. Values
+   * are only clamped at the end, so the result can differ slightly from running them separately.
+   */
+  FAST,
+  /**
+   * Runs each command separately.
+   */
+  OFF;
+
+  @Override
+  public String toString() {
+    switch (this) {
+      case EXACT:
+        return "exact";
+      case FAST:
+        return "fast";
+      case OFF:
+        return "off";
+      default:
+        break;
+    }
+    return "";
+  }
+}
@@ -1,126 +1,104 @@
 package controller;
 
-import java.awt.Color;
 import java.awt.image.BufferedImage;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Scanner;
 import javax.imageio.ImageIO;
 import model.Layer;
 import model.image.Image;
-import model.image.ImageImpl;
+import model.image.LayerExecutor;
 import model.image.LayeredImage;
 import model.image.LayeredImageImpl;
-import model.pixel.Pixel;
-import model.pixel.PixelImpl;
-import model.pixel.TransparentPixelImpl;
+import model.image.MappedImage;
+import model.image.PackedImage;
+import model.image.RasterUtil;
 
 /**
  * A utility class containing methods to import various types of {@link Image} from a file.
  */
 public class ImportUtil {
 
-
-  private static Image importPPM(String filename) {
-    Scanner sc = null;
-
-    try {
-      sc = new Scanner(new FileInputStream(filename + ".ppm"));
-    } catch (FileNotFoundException e) {
-      System.out.println("File " + filename + " not found!");
-    }
-    StringBuilder builder = new StringBuilder();
-    //read the file line by line, and populate a string. This will throw away any comment lines
-    while (sc.hasNextLine()) {
-      String s = sc.nextLine();
-      if (s.charAt(0) != '#') {
-        builder.append(s + System.lineSeparator());
-      }
-    }
-
-    sc = new Scanner(builder.toString());
-
-    String token;
-
-    token = sc.next();
-    if (!token.equals("P3")) {
-      System.out.println("Invalid PPM file: plain RAW file should begin with P3");
-    }
-    int width = sc.nextInt();
-    int height = sc.nextInt();
-    int maxValue = sc.nextInt();
-
-    ArrayList<ArrayList<Pixel>> pixels = new ArrayList<ArrayList<Pixel>>();
-    for (int i = 0; i < width; i++) {
-      pixels.add(new ArrayList<>());
-    }
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        int r = sc.nextInt();
-        int g = sc.nextInt();
-        int b = sc.nextInt();
-        pixels.get(j).add(new PixelImpl(r, g, b));
-      }
-    }
-    return new ImageImpl(pixels);
-  }
-
   /**
-   * Converts a file of any type listed in FileType to the ImageImpl representation of an image.
+   * Converts a file of any type listed in FileType to an {@link Image}.
    *
    * @param filename the name of the file to be imported
-   * @return an ImageImpl representing the image being imported
+   * @return an Image representing the image being imported
    * @throws IOException if reading the file fails
    */
   public static Image importFile(String filename) throws IOException {
-    if (filename.length() > 3
-        && filename.substring(filename.length() - 3).equalsIgnoreCase("ppm")) {
-      return importPPM(filename.substring(0, filename.length() - 4));
+    String lower = filename.toLowerCase();
+    if (lower.endsWith(".ppm") || lower.endsWith(".pgm")) {
+      return PpmCodec.read(Paths.get(filename));
     } else {
       BufferedImage inputImage = ImageIO.read(new File(filename));
-      ArrayList<ArrayList<Pixel>> importedPixels = new ArrayList<>();
-
-      for (int i = 0; i < inputImage.getWidth(); i += 1) {
-        importedPixels.add(new ArrayList<>());
-        for (int j = 0; j < inputImage.getHeight(); j += 1) {
-          Color curColor = new Color(inputImage.getRGB(i, j), true);
-          importedPixels.get(i).add(
-              new TransparentPixelImpl(curColor.getRed(), curColor.getGreen(), curColor.getBlue(),
-                  curColor.getAlpha()));
-        }
+      if (inputImage == null) {
+        throw new IOException("Unsupported image format: " + filename);
       }
-      return new ImageImpl(importedPixels);
+      return RasterUtil.fromBufferedImage(inputImage);
     }
   }
 
+  /**
+   * Maps a file of raw pixels into an image without reading it. The file holds four bytes per
+   * pixel in the order red, green, blue and alpha, one row after another from the top of the
+   * image, and must not change while the image is in use.
+   *
+   * @param filename the name of the file to be imported
+   * @param width    the width of the image held in the file
+   * @param height   the height of the image held in the file
+   * @return an image that reads its pixels from the file
+   * @throws IOException if the file cannot be mapped or is too short to hold the image
+   * @throws IllegalArgumentException if width or height are negative or the image is too large
+   */
+  public static Image importRaw(String filename, int width, int height)
+      throws IOException, IllegalArgumentException {
+    return MappedImage.map(Paths.get(filename), 0, width, height, MappedImage.Layout.RGBA);
+  }
+
   /**
    * Converts an exported LayeredImageImpl back into the LayeredImageImpl representation of an
-   * image.
+   * image. Layers are decoded concurrently through {@link LayerExecutor}.
    *
    * @param filename the name of the folder that represents the exported layeredImageImpl
    * @return a LayerImageImpl representing the image being imported
    * @throws IOException if reading the file fails
    */
   public static LayeredImage importLayeredFile(String filename) throws IOException {
-    File file = new File(filename + "\\" + "layers.txt");
-    Scanner s = new Scanner(file);
-    FileType fileType = setFileType(s.next());
-    String layerName;
+    File folder = new File(filename);
+    FileType fileType;
+    List<String> names = new ArrayList<>();
+    try (Scanner s = new Scanner(new File(folder, "layers.txt"))) {
+      fileType = setFileType(s.next());
+      while (s.hasNext()) {
+        names.add(s.next());
+      }
+    }
+    List<Image> images = LayerExecutor.forEachLayer(names, layerName -> ImportUtil.importFile(
+        new File(folder, layerName + "." + fileType.extension()).getPath()), "import");
     ArrayList<Layer> layers = new ArrayList<Layer>();
-    int numLayers = 1;
-    while (s.hasNext()) {
-      layerName = s.next();
-      layers.add(new Layer(ImportUtil.importFile(
-          filename + "\\" + layerName + "." + fileType.toString()),
-          numLayers, layerName));
-      numLayers += 1;
+    for (int i = 0; i < names.size(); i += 1) {
+      layers.add(new Layer(images.get(i), i + 1, names.get(i)));
     }
     return new LayeredImageImpl(layers);
   }
 
+  /**
+   * Opens a project file written by {@link LayeredImage#exportProject(String)}. Only the list of
+   * layers is read straight away, and each layer is read from the file when it is first used.
+   *
+   * @param filename the name of the project file, including its extension
+   * @return a LayeredImage holding the layers of the project
+   * @throws IOException if the file cannot be read or is not a valid project file
+   */
+  public static LayeredImage importProject(String filename) throws IOException {
+    return ProjectFile.read(Paths.get(filename));
+  }
+
   /**
    * Returns the corresponding FileType based on the given String.
    *
@@ -144,6 +122,10 @@ public class ImportUtil {
         return FileType.GIF;
       case "ppm":
         return FileType.PPM;
+      case "p6":
+        return FileType.PPM_BINARY;
+      case "pgm":
+        return FileType.PGM;
       default:
         throw new IllegalArgumentException("Invalid file type given");
     }
@@ -152,16 +134,11 @@ public class ImportUtil {
   /**
    * Creates a completely white placeholder image.
    *
-   * @return an {@link ImageImpl} consisting of only white pixels.
+   * @return a {@link PackedImage} consisting of only white pixels.
    */
   public static Image createBlankImage() {
-    ArrayList<ArrayList<Pixel>> pixels = new ArrayList<>();
-    for (int i = 0; i < 500; i += 1) {
-      pixels.add(new ArrayList<Pixel>());
-      for (int j = 0; j < 500; j += 1) {
-        pixels.get(i).add(new TransparentPixelImpl(255, 255, 255, 255));
-      }
-    }
-    return new ImageImpl(pixels);
+    int[] pixels = new int[500 * 500];
+    Arrays.fill(pixels, 0xFFFFFFFF);
+    return new PackedImage(500, 500, 500, pixels);
   }
 }
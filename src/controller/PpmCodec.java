@@ -0,0 +1,347 @@
+package controller;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import model.image.Image;
+import model.image.MappedImage;
+import model.image.PackedImage;
+import model.pixel.ArgbUtil;
+
+/**
+ * Reads and writes PPM and PGM files without going through strings. Files are read through a
+ * fixed size byte buffer, so a file of any size is read in a single pass straight into the packed
+ * pixels of a {@link PackedImage}. Plain files (P3 and P2) are parsed one byte at a time, while the
+ * samples of binary files (P6 and P5) are unpacked directly from the buffer. Plain files are
+ * written by copying precomputed digits for every channel value into a reusable byte buffer, and
+ * binary files by copying the samples themselves.
+ *
+ * <p>Binary PPM files with a maximum value of 255 whose samples take up at least
+ * {@code image.mapThreshold} bytes, 16 MiB by default, are not read at all but mapped into memory
+ * as a {@link MappedImage}, which only decodes pixels when they are used.
+ */
+public final class PpmCodec {
+
+  private static final int BUFFER_SIZE = 1 << 16;
+  private static final long MAP_THRESHOLD = Long.getLong("image.mapThreshold", 1 << 24);
+  private static final byte[] LINE_SEPARATOR =
+      System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+
+  /**
+   * The ASCII digits of every channel value, preceded by a space, stored four bytes per value
+   * with the unused bytes at the end. The length of each value's text is kept in DIGIT_LENGTHS.
+   */
+  private static final byte[] DIGITS = new byte[256 * 4];
+  private static final byte[] DIGIT_LENGTHS = new byte[256];
+
+  static {
+    for (int value = 0; value < 256; value += 1) {
+      byte[] text = (" " + value).getBytes(StandardCharsets.US_ASCII);
+      System.arraycopy(text, 0, DIGITS, value * 4, text.length);
+      DIGIT_LENGTHS[value] = (byte) text.length;
+    }
+  }
+
+  private PpmCodec() {
+  }
+
+  /**
+   * Reads a PPM or PGM file, either plain or binary. Comments may appear anywhere whitespace can
+   * in the header, and anywhere in the samples of plain files. Channel values are scaled from the
+   * file's maximum value to the range 0 to 255. Large binary PPM files with a maximum value of
+   * 255 are mapped rather than read, so the file must not change while the image is in use.
+   *
+   * @param path the path of the file to be read
+   * @return the image held in the file, with every pixel opaque
+   * @throws IOException if the file cannot be read or is not a valid PPM or PGM file
+   */
+  public static Image read(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path)) {
+      Tokenizer in = new Tokenizer(channel);
+      int magic = in.nextByte() == 'P' ? in.read() : -1;
+      if (magic != '2' && magic != '3' && magic != '5' && magic != '6') {
+        throw new IOException("Invalid PPM file: file should begin with P2, P3, P5 or P6");
+      }
+      int width = in.nextInt();
+      int height = in.nextInt();
+      int maxValue = in.nextInt();
+      if (maxValue < 1 || maxValue > 65535) {
+        throw new IOException("Invalid PPM file: maximum value must be between 1 and 65535");
+      }
+      if ((long) width * height > Integer.MAX_VALUE - 8) {
+        throw new IOException("Invalid PPM file: image is too large");
+      }
+      if (magic == '6' && maxValue == 255 && (long) width * height * 3 >= MAP_THRESHOLD) {
+        return MappedImage.map(path, in.offset(), width, height, MappedImage.Layout.RGB);
+      }
+      int[] scale = scaleTable(maxValue);
+      int[] data = new int[width * height];
+      boolean grey = magic == '2' || magic == '5';
+      if (magic == '5' || magic == '6') {
+        in.readRaster(data, grey ? 1 : 3, maxValue > 255 ? 2 : 1, maxValue, scale);
+      } else {
+        for (int i = 0; i < data.length; i += 1) {
+          int red = scale[in.nextValue(maxValue)];
+          int green = grey ? red : scale[in.nextValue(maxValue)];
+          int blue = grey ? red : scale[in.nextValue(maxValue)];
+          data[i] = 0xFF000000 | (red << 16) | (green << 8) | blue;
+        }
+      }
+      return new PackedImage(width, height, width, data);
+    }
+  }
+
+  /**
+   * Builds a table mapping every value from 0 to maxValue to the nearest value from 0 to 255.
+   */
+  private static int[] scaleTable(int maxValue) {
+    int[] table = new int[maxValue + 1];
+    for (int value = 0; value <= maxValue; value += 1) {
+      table[value] = (value * 255 + maxValue / 2) / maxValue;
+    }
+    return table;
+  }
+
+  /**
+   * Writes an image to a PPM or PGM file with a maximum value of 255. Alpha values are dropped,
+   * and PGM files hold the luminance of each pixel.
+   *
+   * @param image    the image to be written
+   * @param path     the path of the file to be written
+   * @param comment  a comment to put in the header of the file
+   * @param fileType the variant to be written, one of PPM, PPM_BINARY and PGM
+   * @throws IOException if the file cannot be written
+   * @throws IllegalArgumentException if fileType is not a variant of PPM or PGM
+   */
+  public static void write(Image image, Path path, String comment, FileType fileType)
+      throws IOException, IllegalArgumentException {
+    if (fileType != FileType.PPM && fileType != FileType.PPM_BINARY && fileType != FileType.PGM) {
+      throw new IllegalArgumentException("File type must be a variant of PPM or PGM");
+    }
+    int width = image.getWidth();
+    int height = image.getHeight();
+    String magic = fileType == FileType.PPM ? "P3" : fileType == FileType.PGM ? "P5" : "P6";
+    // The old file is removed rather than truncated, so an image mapped from it, which may be the
+    // very image being written, keeps reading its own pixels until it lets go of them.
+    Files.deleteIfExists(path);
+    try (OutputStream out = Files.newOutputStream(path)) {
+      ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+      // Binary samples start after exactly one whitespace character, while plain files keep the
+      // layout they have always been written with.
+      String separator = fileType == FileType.PPM ? "" : "\n";
+      out.write((magic + System.lineSeparator() + "# " + comment + System.lineSeparator() + width
+          + " " + height + System.lineSeparator() + "255" + separator)
+          .getBytes(StandardCharsets.UTF_8));
+      int[] row = new int[width];
+      for (int y = 0; y < height; y += 1) {
+        image.getRegion(row, 0, width, 0, y, width, 1);
+        if (fileType == FileType.PPM) {
+          putPlainRow(out, buffer, row);
+        } else {
+          putBinaryRow(out, buffer, row, fileType == FileType.PGM);
+        }
+      }
+      flush(out, buffer);
+    }
+  }
+
+  private static void putPlainRow(OutputStream out, ByteBuffer buffer, int[] row)
+      throws IOException {
+    if (buffer.remaining() < LINE_SEPARATOR.length) {
+      flush(out, buffer);
+    }
+    buffer.put(LINE_SEPARATOR);
+    for (int argb : row) {
+      if (buffer.remaining() < 12) {
+        flush(out, buffer);
+      }
+      putValue(buffer, (argb >> 16) & 0xFF);
+      putValue(buffer, (argb >> 8) & 0xFF);
+      putValue(buffer, argb & 0xFF);
+    }
+  }
+
+  private static void putBinaryRow(OutputStream out, ByteBuffer buffer, int[] row, boolean grey)
+      throws IOException {
+    byte[] bytes = buffer.array();
+    for (int argb : row) {
+      if (buffer.remaining() < 3) {
+        flush(out, buffer);
+      }
+      int position = buffer.position();
+      if (grey) {
+        bytes[position] = (byte) ArgbUtil.luminance(argb);
+        buffer.position(position + 1);
+      } else {
+        bytes[position] = (byte) (argb >> 16);
+        bytes[position + 1] = (byte) (argb >> 8);
+        bytes[position + 2] = (byte) argb;
+        buffer.position(position + 3);
+      }
+    }
+  }
+
+  private static void putValue(ByteBuffer buffer, int value) {
+    buffer.put(DIGITS, value * 4, DIGIT_LENGTHS[value]);
+  }
+
+  private static void flush(OutputStream out, ByteBuffer buffer) throws IOException {
+    out.write(buffer.array(), 0, buffer.position());
+    buffer.clear();
+  }
+
+  /**
+   * Splits the text of a PPM file into bytes and non-negative integers, skipping whitespace and
+   * comments between them.
+   */
+  private static final class Tokenizer {
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final byte[] bytes;
+    private int position;
+    private int limit;
+    private long consumed;
+
+    Tokenizer(FileChannel channel) {
+      this.channel = channel;
+      this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+      this.bytes = buffer.array();
+    }
+
+    /**
+     * Gets the next byte of the file, or -1 at the end of the file.
+     */
+    int read() throws IOException {
+      if (position == limit) {
+        consumed += limit;
+        buffer.clear();
+        int count = channel.read(buffer);
+        while (count == 0) {
+          count = channel.read(buffer);
+        }
+        if (count < 0) {
+          return -1;
+        }
+        position = 0;
+        limit = count;
+      }
+      return bytes[position++] & 0xFF;
+    }
+
+    /**
+     * Gets the position in the file of the next byte to be read.
+     */
+    long offset() {
+      return consumed + position;
+    }
+
+    /**
+     * Gets the next byte that is not whitespace or part of a comment.
+     */
+    int nextByte() throws IOException {
+      int c = read();
+      while (true) {
+        if (c == '#') {
+          while (c != '\n' && c != '\r' && c != -1) {
+            c = read();
+          }
+        } else if (c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f' || c == 0x0B) {
+          c = read();
+        } else {
+          return c;
+        }
+      }
+    }
+
+    /**
+     * Reads the next non-negative integer, which must be followed by whitespace, a comment or the
+     * end of the file.
+     */
+    int nextInt() throws IOException {
+      int c = nextByte();
+      if (c < '0' || c > '9') {
+        throw new IOException(c == -1 ? "Invalid PPM file: file ends too early"
+            : "Invalid PPM file: expected a number but found '" + (char) c + "'");
+      }
+      long value = 0;
+      while (c >= '0' && c <= '9') {
+        value = value * 10 + (c - '0');
+        if (value > Integer.MAX_VALUE) {
+          throw new IOException("Invalid PPM file: number is too large");
+        }
+        c = read();
+      }
+      if (c == '#') {
+        position -= 1;
+      } else if (c != -1 && c > ' ') {
+        throw new IOException("Invalid PPM file: unexpected character '" + (char) c + "'");
+      }
+      return (int) value;
+    }
+
+    /**
+     * Reads the next channel value, which must be at most maxValue.
+     */
+    int nextValue(int maxValue) throws IOException {
+      int value = nextInt();
+      if (value > maxValue) {
+        throw new IOException("Invalid PPM file: value " + value + " is above the maximum");
+      }
+      return value;
+    }
+
+    /**
+     * Reads the binary samples that follow the header into packed pixels. Whole pixels are
+     * unpacked straight from the buffer, which is refilled whenever fewer than a whole pixel
+     * remains in it.
+     *
+     * @param data            the array the pixels are written to, one pixel per entry
+     * @param samples         the number of samples per pixel, 1 for grey or 3 for color
+     * @param bytesPerSample  the number of bytes per sample, 1 or 2
+     * @param maxValue        the largest value a sample may have
+     * @param scale           a table mapping each sample value to the range 0 to 255
+     */
+    void readRaster(int[] data, int samples, int bytesPerSample, int maxValue, int[] scale)
+        throws IOException {
+      int pixelSize = samples * bytesPerSample;
+      int i = 0;
+      while (i < data.length) {
+        if (limit - position < pixelSize) {
+          consumed += position;
+          buffer.clear();
+          buffer.put(bytes, position, limit - position);
+          int count = channel.read(buffer);
+          if (count < 0) {
+            throw new IOException("Invalid PPM file: file ends too early");
+          }
+          position = 0;
+          limit = buffer.position();
+          continue;
+        }
+        int end = Math.min(data.length, i + (limit - position) / pixelSize);
+        for (; i < end; i += 1) {
+          int red = sample(bytesPerSample, maxValue);
+          int green = samples == 1 ? red : sample(bytesPerSample, maxValue);
+          int blue = samples == 1 ? red : sample(bytesPerSample, maxValue);
+          data[i] = 0xFF000000 | (scale[red] << 16) | (scale[green] << 8) | scale[blue];
+        }
+      }
+    }
+
+    private int sample(int bytesPerSample, int maxValue) throws IOException {
+      int value = bytes[position++] & 0xFF;
+      if (bytesPerSample == 2) {
+        value = (value << 8) | (bytes[position++] & 0xFF);
+      }
+      if (value > maxValue) {
+        throw new IOException("Invalid PPM file: value " + value + " is above the maximum");
+      }
+      return value;
+    }
+  }
+}
@@ -0,0 +1,500 @@
+package controller;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import model.Layer;
+import model.image.DeferredImage;
+import model.image.Image;
+import model.image.LayerExecutor;
+import model.image.LayeredImage;
+import model.image.LayeredImageImpl;
+import model.image.PackedImage;
+
+/**
+ * Reads and writes layered images as single project files. A project file starts with a header
+ * and a table of contents giving the name, number, state and size of every layer along with the
+ * position, length and CRC-32 checksum of the block holding its pixels, so any layer can be read
+ * on its own without reading the others.
+ *
+ * <p>Each block holds the ARGB bytes of its layer one row after another, either as they are or,
+ * when it makes them smaller, with every byte replaced by its difference from the same channel of
+ * the pixel to its left and then compressed with the fastest level of deflate. Blocks are
+ * encoded concurrently through {@link LayerExecutor} and may appear in the file in any order.
+ *
+ * <p>Reading a project only reads its table of contents. Each layer is a {@link DeferredImage}
+ * that reads and checks its block when its pixels are first used, so opening a large project and
+ * editing one layer only reads that layer. The file is opened again for each layer that is read,
+ * and layers that have not been changed are copied to a new project file without being decoded.
+ * Project files are written to a temporary file that replaces the old one once it is complete, so
+ * a project can be saved over the file it was opened from.
+ */
+public final class ProjectFile {
+
+  private static final int MAGIC = 0x4C595250;
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 16;
+  private static final int ENTRY_SIZE = 36;
+  private static final byte RAW = 0;
+  private static final byte DEFLATE = 1;
+  private static final int VISIBLE = 1;
+  private static final int EDITED = 2;
+
+  private ProjectFile() {
+  }
+
+  /**
+   * The table of contents entry of a layer.
+   */
+  private static final class Entry {
+
+    String name;
+    int number;
+    int flags;
+    int width;
+    int height;
+    byte encoding;
+    long offset;
+    long length;
+    int checksum;
+  }
+
+  /**
+   * A project file that layers are read from. The file is opened again for each block that is
+   * read, so no file is held open by layers that are never used, and blocks are only read from
+   * the same file that the table of contents was read from.
+   */
+  private static final class Archive {
+
+    private final Path path;
+    private final Object fileKey;
+    private final FileTime modified;
+
+    Archive(Path path) throws IOException {
+      BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+      this.path = path;
+      this.fileKey = attributes.fileKey();
+      this.modified = attributes.lastModifiedTime();
+    }
+
+    /**
+     * Reads the stored bytes of a block and checks them against its checksum.
+     */
+    byte[] read(Entry entry) throws IOException {
+      byte[] stored = readIfUnchanged(entry);
+      if (stored == null) {
+        throw new IOException("Project file has changed since it was opened");
+      }
+      return stored;
+    }
+
+    /**
+     * Reads the stored bytes of a block like {@link #read(Entry)}, or gets null if the file has
+     * been replaced or changed since it was opened.
+     */
+    byte[] readIfUnchanged(Entry entry) throws IOException {
+      try (FileChannel channel = FileChannel.open(path)) {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        if (!Objects.equals(fileKey, attributes.fileKey())
+            || !modified.equals(attributes.lastModifiedTime())) {
+          return null;
+        }
+        return readBlock(channel, entry);
+      } catch (NoSuchFileException e) {
+        return null;
+      }
+    }
+  }
+
+  /**
+   * Loads a layer from its block, which can also be copied to a new file as it is. Saving the
+   * layer moves it to the block it was saved to.
+   */
+  private static final class BlockLoader implements DeferredImage.Loader {
+
+    private Archive archive;
+    private Entry entry;
+
+    BlockLoader(Archive archive, Entry entry) {
+      this.archive = archive;
+      this.entry = entry;
+    }
+
+    @Override
+    public synchronized Image load() throws IOException {
+      return decode(entry, archive.read(entry));
+    }
+
+    /**
+     * Gets the stored bytes of the block, setting the encoding of the given entry to its own, or
+     * gets null if the file has been changed.
+     */
+    synchronized byte[] stored(Entry copy) throws IOException {
+      byte[] stored = archive.readIfUnchanged(entry);
+      if (stored != null) {
+        copy.encoding = entry.encoding;
+      }
+      return stored;
+    }
+
+    synchronized void moveTo(Archive archive, Entry entry) {
+      this.archive = archive;
+      this.entry = entry;
+    }
+  }
+
+  /**
+   * Writes the layers of an image to a project file.
+   *
+   * @param layers the layers to be written, in order
+   * @param path   the path of the file to be written
+   * @throws IOException if the file or any layer cannot be written
+   * @throws IllegalArgumentException if layers is null or there are too many layers
+   */
+  public static void write(List<Layer> layers, Path path)
+      throws IOException, IllegalArgumentException {
+    if (layers == null) {
+      throw new IllegalArgumentException("Layers cannot be null");
+    }
+    List<Entry> entries = new ArrayList<>();
+    List<Image> images = new ArrayList<>();
+    long tableSize = 0;
+    for (Layer l : layers) {
+      Entry entry = new Entry();
+      Image image = l.getImage();
+      entry.name = l.getName();
+      entry.number = l.getLayerNumber();
+      entry.flags = (l.getIsVisible() ? VISIBLE : 0) | (l.getIsBeingEdited() ? EDITED : 0);
+      entry.width = image.getWidth();
+      entry.height = image.getHeight();
+      tableSize += ENTRY_SIZE + nameBytes(entry).length;
+      entries.add(entry);
+      images.add(image);
+    }
+    if (HEADER_SIZE + tableSize > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Too many layers");
+    }
+
+    Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      AtomicLong end = new AtomicLong(HEADER_SIZE + tableSize);
+      List<Integer> indices = new ArrayList<>();
+      for (int i = 0; i < entries.size(); i += 1) {
+        indices.add(i);
+      }
+      LayerExecutor.forEachLayer(indices, i -> {
+        Entry entry = entries.get(i);
+        byte[] stored = store(images.get(i), entry);
+        CRC32 crc = new CRC32();
+        crc.update(stored);
+        entry.checksum = (int) crc.getValue();
+        entry.length = stored.length;
+        entry.offset = end.getAndAdd(stored.length);
+        writeFully(channel, ByteBuffer.wrap(stored), entry.offset);
+        return null;
+      }, "save");
+
+      ByteBuffer table = ByteBuffer.allocate((int) (HEADER_SIZE + tableSize));
+      table.putInt(MAGIC).putInt(VERSION).putInt(entries.size()).putInt((int) tableSize);
+      for (Entry entry : entries) {
+        byte[] name = nameBytes(entry);
+        table.putShort((short) name.length).put(name).putInt(entry.number)
+            .put((byte) entry.flags).putInt(entry.width).putInt(entry.height)
+            .put(entry.encoding).putLong(entry.offset).putLong(entry.length)
+            .putInt(entry.checksum);
+      }
+      table.flip();
+      writeFully(channel, table, 0);
+    } catch (IOException | RuntimeException e) {
+      Files.deleteIfExists(temp);
+      throw e;
+    }
+    try {
+      Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // Unchanged layers now read from the new file, which may have replaced the one they were in.
+    Archive archive;
+    try {
+      archive = new Archive(path);
+    } catch (IOException e) {
+      // The project has been saved, and its layers keep reading from the file they came from.
+      return;
+    }
+    for (int i = 0; i < images.size(); i += 1) {
+      Image image = images.get(i);
+      if (image instanceof DeferredImage
+          && ((DeferredImage) image).getLoader() instanceof BlockLoader) {
+        ((BlockLoader) ((DeferredImage) image).getLoader()).moveTo(archive, entries.get(i));
+      }
+    }
+  }
+
+  private static byte[] nameBytes(Entry entry) throws IllegalArgumentException {
+    byte[] name = entry.name.getBytes(StandardCharsets.UTF_8);
+    if (name.length > 0xFFFF) {
+      throw new IllegalArgumentException("Layer name is too long");
+    }
+    return name;
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer, long position)
+      throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer, position + buffer.position());
+    }
+  }
+
+  /**
+   * Gets the bytes to be stored for an image, setting the encoding of its entry. Layers read from
+   * a project file that has not been replaced since, and that have not been changed, are copied
+   * from it as they are.
+   */
+  private static byte[] store(Image image, Entry entry) throws IOException {
+    if (image instanceof DeferredImage
+        && ((DeferredImage) image).getLoader() instanceof BlockLoader) {
+      byte[] stored = ((BlockLoader) ((DeferredImage) image).getLoader()).stored(entry);
+      if (stored != null) {
+        return stored;
+      }
+    }
+    int width = entry.width;
+    long rawSize = (long) width * entry.height * 4;
+    if (rawSize > Integer.MAX_VALUE - 8) {
+      throw new IOException("Layer " + entry.name + " is too large");
+    }
+    int[] row = new int[width];
+    byte[] bytes = new byte[width * 4];
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    try (DeflaterOutputStream out = new DeflaterOutputStream(compressed, deflater, 1 << 16)) {
+      for (int y = 0; y < entry.height; y += 1) {
+        image.getRegion(row, 0, width, 0, y, width, 1);
+        int previous = 0;
+        for (int x = 0; x < width; x += 1) {
+          int argb = row[x];
+          bytes[x * 4] = (byte) ((argb >>> 24) - (previous >>> 24));
+          bytes[x * 4 + 1] = (byte) ((argb >> 16) - (previous >> 16));
+          bytes[x * 4 + 2] = (byte) ((argb >> 8) - (previous >> 8));
+          bytes[x * 4 + 3] = (byte) (argb - previous);
+          previous = argb;
+        }
+        out.write(bytes);
+      }
+    } finally {
+      deflater.end();
+    }
+    if (compressed.size() < rawSize) {
+      entry.encoding = DEFLATE;
+      return compressed.toByteArray();
+    }
+    entry.encoding = RAW;
+    ByteBuffer raw = ByteBuffer.allocate((int) rawSize);
+    for (int y = 0; y < entry.height; y += 1) {
+      image.getRegion(row, 0, width, 0, y, width, 1);
+      raw.asIntBuffer().put(y * width, row);
+    }
+    return raw.array();
+  }
+
+  /**
+   * Decodes the stored bytes of a block into an image.
+   */
+  private static Image decode(Entry entry, byte[] stored) throws IOException {
+    int width = entry.width;
+    int height = entry.height;
+    int[] data = new int[width * height];
+    if (entry.encoding == RAW) {
+      if (stored.length != data.length * 4) {
+        throw new IOException("Layer " + entry.name + " has the wrong length");
+      }
+      ByteBuffer.wrap(stored).asIntBuffer().get(data);
+      return new PackedImage(width, height, width, data);
+    } else if (entry.encoding != DEFLATE) {
+      throw new IOException("Layer " + entry.name + " has an unknown encoding");
+    }
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(stored);
+      byte[] bytes = new byte[width * 4];
+      for (int y = 0; y < height; y += 1) {
+        int filled = 0;
+        while (filled < bytes.length) {
+          int count = inflater.inflate(bytes, filled, bytes.length - filled);
+          if (count == 0 && (inflater.finished() || inflater.needsInput())) {
+            throw new IOException("Layer " + entry.name + " ends too early");
+          }
+          filled += count;
+        }
+        int a = 0;
+        int r = 0;
+        int g = 0;
+        int b = 0;
+        for (int x = 0; x < width; x += 1) {
+          a = (a + bytes[x * 4]) & 0xFF;
+          r = (r + bytes[x * 4 + 1]) & 0xFF;
+          g = (g + bytes[x * 4 + 2]) & 0xFF;
+          b = (b + bytes[x * 4 + 3]) & 0xFF;
+          data[y * width + x] = (a << 24) | (r << 16) | (g << 8) | b;
+        }
+      }
+    } catch (DataFormatException e) {
+      throw new IOException("Layer " + entry.name + " is not valid compressed data", e);
+    } finally {
+      inflater.end();
+    }
+    return new PackedImage(width, height, width, data);
+  }
+
+  /**
+   * Opens a project file, reading only its table of contents. Each layer is read from the file
+   * when its pixels are first used.
+   *
+   * @param path the path of the project file
+   * @return the layered image held in the file
+   * @throws IOException if the file cannot be read or is not a valid project file
+   */
+  public static LayeredImage read(Path path) throws IOException {
+    Archive archive;
+    List<Entry> entries;
+    try (FileChannel channel = FileChannel.open(path)) {
+      archive = new Archive(path);
+      entries = readTable(channel);
+    }
+    ArrayList<Layer> layers = new ArrayList<>();
+    for (Entry entry : entries) {
+      layers.add(new Layer(new DeferredImage(entry.width, entry.height,
+          new BlockLoader(archive, entry)), entry.number, entry.name));
+    }
+    LayeredImageImpl image = new LayeredImageImpl(layers);
+    for (int i = 0; i < entries.size(); i += 1) {
+      layers.get(i).setIsVisible((entries.get(i).flags & VISIBLE) != 0);
+      layers.get(i).setIsBeingEdited((entries.get(i).flags & EDITED) != 0);
+    }
+    return image;
+  }
+
+  /**
+   * Reads a single layer of a project file without opening the others.
+   *
+   * @param path      the path of the project file
+   * @param layerName the name of the layer to be read
+   * @return the image of the layer
+   * @throws IOException if the file cannot be read, is not a valid project file or does not
+   *                     have a layer with the given name
+   */
+  public static Image readLayer(Path path, String layerName) throws IOException {
+    try (FileChannel channel = FileChannel.open(path)) {
+      for (Entry entry : readTable(channel)) {
+        if (entry.name.equals(layerName)) {
+          return decode(entry, readBlock(channel, entry));
+        }
+      }
+    }
+    throw new IOException("Project has no layer named " + layerName);
+  }
+
+  /**
+   * Reads the stored bytes of a block from the given file and checks them against its checksum.
+   */
+  private static byte[] readBlock(FileChannel channel, Entry entry) throws IOException {
+    if (entry.length > Integer.MAX_VALUE - 8) {
+      throw new IOException("Layer " + entry.name + " is too large");
+    }
+    byte[] stored = new byte[(int) entry.length];
+    ByteBuffer buffer = ByteBuffer.wrap(stored);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, entry.offset + buffer.position()) < 0) {
+        throw new IOException("Project file ends in the middle of layer " + entry.name);
+      }
+    }
+    CRC32 crc = new CRC32();
+    crc.update(stored);
+    if ((int) crc.getValue() != entry.checksum) {
+      throw new IOException("Layer " + entry.name + " is corrupted");
+    }
+    return stored;
+  }
+
+  private static List<Entry> readTable(FileChannel channel) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    readFully(channel, header, 0);
+    header.flip();
+    if (header.getInt() != MAGIC) {
+      throw new IOException("Not a project file");
+    }
+    int version = header.getInt();
+    if (version != VERSION) {
+      throw new IOException("Unsupported project file version " + version);
+    }
+    int count = header.getInt();
+    int tableSize = header.getInt();
+    long size = channel.size();
+    if (count < 0 || tableSize < 0 || HEADER_SIZE + (long) tableSize > size) {
+      throw new IOException("Invalid project file: table of contents is damaged");
+    }
+    ByteBuffer table = ByteBuffer.allocate(tableSize);
+    readFully(channel, table, HEADER_SIZE);
+    table.flip();
+    List<Entry> entries = new ArrayList<>();
+    try {
+      for (int i = 0; i < count; i += 1) {
+        Entry entry = new Entry();
+        byte[] name = new byte[table.getShort() & 0xFFFF];
+        table.get(name);
+        entry.name = new String(name, StandardCharsets.UTF_8);
+        entry.number = table.getInt();
+        entry.flags = table.get();
+        entry.width = table.getInt();
+        entry.height = table.getInt();
+        entry.encoding = table.get();
+        entry.offset = table.getLong();
+        entry.length = table.getLong();
+        entry.checksum = table.getInt();
+        if (entry.number < 1 || entry.width < 0 || entry.height < 0
+            || (long) entry.width * entry.height > Integer.MAX_VALUE - 8 || entry.offset < 0
+            || entry.length < 0 || entry.offset + entry.length > size) {
+          throw new IOException("Invalid project file: entry for layer " + entry.name
+              + " is damaged");
+        }
+        entries.add(entry);
+      }
+    } catch (BufferUnderflowException e) {
+      throw new IOException("Invalid project file: table of contents is damaged", e);
+    }
+    return entries;
+  }
+
+  private static void readFully(FileChannel channel, ByteBuffer buffer, long position)
+      throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new IOException("Invalid project file: file ends too early");
+      }
+    }
+  }
+}
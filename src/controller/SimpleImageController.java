@@ -1,26 +1,49 @@
 package controller;
 
+import controller.command.AutoLevels;
 import controller.command.Blur;
+import controller.command.BoxBlurCommand;
+import controller.command.ColorMatrixCommand;
+import controller.command.Convolve;
 import controller.command.Create;
 import controller.command.Current;
+import controller.command.Downscale;
+import controller.command.Equalize;
+import controller.command.FusedPointwise;
 import controller.command.Greyscale;
 import controller.command.ImageCommand;
 import controller.command.Invisible;
 import controller.command.Load;
 import controller.command.LoadLayered;
+import controller.command.LoadProject;
+import controller.command.LoadRaw;
+import controller.command.LocalMean;
+import controller.command.Mosaic;
+import controller.command.PointwiseCommand;
 import controller.command.Remove;
+import controller.command.Resize;
 import controller.command.Save;
+import controller.command.SaveProject;
 import controller.command.SaveTopmost;
 import controller.command.Sepia;
 import controller.command.Sharpen;
+import controller.command.Thumbnail;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Scanner;
 import java.util.function.Function;
+import model.image.Histogram;
 import model.image.LayeredImage;
+import model.image.ResampleFilter;
+import model.image.SeedPlacement;
+import model.pixel.ArgbUtil;
 import view.SimpleImageTextView;
 
 /**
@@ -32,6 +55,7 @@ public class SimpleImageController implements ImageController {
   private final LayeredImage image;
   private final Readable rd;
   private final SimpleImageTextView view;
+  private FusionMode fusion;
 
   /**
    * Constructs a SimpleImageController object.
@@ -49,6 +73,7 @@ public class SimpleImageController implements ImageController {
     this.image = image;
     this.rd = rd;
     this.view = view;
+    this.fusion = FusionMode.EXACT;
   }
 
   /**
@@ -70,7 +95,7 @@ public class SimpleImageController implements ImageController {
         goScript(scan.next());
       } else if (in.equalsIgnoreCase("manual")) {
         printMessage("Please enter a command.");
-        executeCommands(scan);
+        executeCommands(scan, false);
       } else {
         printMessage("Invalid input. Please enter \"script [scriptName]\" to use a script"
             + " or \"manual\" to input commands manually.");
@@ -83,7 +108,7 @@ public class SimpleImageController implements ImageController {
     try {
       File script = new File(scriptName);
       Scanner s = new Scanner(script);
-      executeCommands(s);
+      executeCommands(s, true);
       printMessage("Script complete.");
     } catch (FileNotFoundException e) {
       printMessage("Script not found. Please try again.");
@@ -94,14 +119,20 @@ public class SimpleImageController implements ImageController {
   public void goManual() {
     Scanner scan = new Scanner(rd);
     printMessage("Please enter a command.");
-    executeCommands(scan);
+    executeCommands(scan, false);
   }
 
-  private void executeCommands(Scanner scan) {
+  /**
+   * Reads and runs commands until the input ends or the user quits. When fuse is set, consecutive
+   * pointwise commands are held back and run together according to the current fusion mode as
+   * soon as any other command, the end of the input, or a quit is reached. Commands that are held
+   * back are reported as queued, and whether they succeeded is reported once they have run.
+   */
+  private void executeCommands(Scanner scan, boolean fuse) {
     Map<String, Function<Scanner, ImageCommand>> knownCommands;
 
     knownCommands = new HashMap<>();
-    knownCommands.put("blur", s -> new Blur());
+    knownCommands.put("blur", s -> readBlur(s));
     knownCommands.put("sharpen", s -> new Sharpen());
     knownCommands.put("greyscale", s -> new Greyscale());
     knownCommands.put("sepia", s -> new Sepia());
@@ -113,15 +144,79 @@ public class SimpleImageController implements ImageController {
     knownCommands.put("invisible", s -> new Invisible(s.next()));
     knownCommands.put("saveTopmost", s -> new SaveTopmost(s.next(), s.next()));
     knownCommands.put("loadLayered", s -> new LoadLayered(s.next()));
+    knownCommands.put("saveProject", s -> new SaveProject(s.next()));
+    knownCommands.put("loadProject", s -> new LoadProject(s.next()));
+    knownCommands.put("loadRaw", s -> new LoadRaw(s.next(), readSize(s), readSize(s)));
+    knownCommands.put("convolve", s -> readConvolve(s));
+    knownCommands.put("colormatrix", s -> readColorMatrix(s));
+    knownCommands.put("mosaic", s -> readMosaic(s));
+    knownCommands.put("downscale", s -> new Downscale(readSize(s), readSize(s)));
+    knownCommands.put("resize", s -> readResize(s));
+    knownCommands.put("autolevels", s -> new AutoLevels());
+    knownCommands.put("equalize", s -> new Equalize());
+    knownCommands.put("boxblur", s -> new BoxBlurCommand(readSize(s)));
+    knownCommands.put("localmean", s -> new LocalMean(readSize(s)));
+    knownCommands.put("thumbnail",
+        s -> new Thumbnail(s.next(), s.next(), readSize(s), readSize(s)));
 
+    List<PointwiseCommand> pending = new ArrayList<>();
     while (scan.hasNext()) {
       ImageCommand imageCommand;
       String in = scan.next();
       if (in.equalsIgnoreCase("q") || in.equalsIgnoreCase("quit")) {
+        runPending(pending);
         printMessage("Manual mode exited. Please enter \"script [scriptName]\" to use a script "
             + " or \"manual\" to input commands manually.");
         return;
       }
+      if (in.equalsIgnoreCase("fusion")) {
+        runPending(pending);
+        try {
+          fusion = readFusionMode(scan);
+          printMessage("Fusion mode set to " + fusion + ". Please enter another command.");
+        } catch (IllegalArgumentException e) {
+          printMessage("Invalid argument given to command. Please try again.");
+        }
+        continue;
+      }
+      if (in.equalsIgnoreCase("lazy")) {
+        runPending(pending);
+        String mode = scan.next();
+        if (mode.equalsIgnoreCase("on") || mode.equalsIgnoreCase("off")) {
+          image.setLazy(mode.equalsIgnoreCase("on"));
+          printMessage("Lazy mode turned " + mode.toLowerCase()
+              + ". Please enter another command.");
+        } else {
+          printMessage("Invalid argument given to command. Please try again.");
+        }
+        continue;
+      }
+      if (in.equalsIgnoreCase("histogram")) {
+        runPending(pending);
+        try {
+          printHistogram(image.histogram());
+        } catch (IllegalArgumentException e) {
+          printMessage("Invalid argument given to command. Please try again.");
+        } catch (UncheckedIOException e) {
+          printLoadFailure(e);
+        }
+        continue;
+      }
+      if (in.equalsIgnoreCase("regionmean")) {
+        runPending(pending);
+        try {
+          int mean = image.integralImage().regionMean(readSize(scan), readSize(scan),
+              readSize(scan), readSize(scan));
+          printMessage("Mean of region is red " + ArgbUtil.red(mean) + ", green "
+              + ArgbUtil.green(mean) + ", blue " + ArgbUtil.blue(mean) + ", alpha "
+              + ArgbUtil.alpha(mean) + ". Please enter another command.");
+        } catch (IllegalArgumentException e) {
+          printMessage("Invalid argument given to command. Please try again.");
+        } catch (UncheckedIOException e) {
+          printLoadFailure(e);
+        }
+        continue;
+      }
       Function<Scanner, ImageCommand> cmd =
           knownCommands.getOrDefault(in, null);
       if (cmd == null) {
@@ -129,13 +224,158 @@ public class SimpleImageController implements ImageController {
       } else {
         try {
           imageCommand = cmd.apply(scan);
-          imageCommand.goCmd(image);
-          printMessage("Command complete. Please enter another command.");
+          if (fuse && fusion != FusionMode.OFF && imageCommand instanceof PointwiseCommand) {
+            pending.add((PointwiseCommand) imageCommand);
+            printMessage("Command queued to run with the color commands around it. Please enter "
+                + "another command.");
+          } else {
+            runPending(pending);
+            imageCommand.goCmd(image);
+            printMessage("Command complete. Please enter another command.");
+          }
         } catch (IllegalArgumentException e) {
           printMessage("Invalid argument given to command. Please try again.");
+        } catch (UncheckedIOException e) {
+          printLoadFailure(e);
+        }
+      }
+    }
+    runPending(pending);
+  }
+
+  /**
+   * Reports that a layer whose pixels are read from a file only when first used could not be
+   * read when a command needed it.
+   */
+  private void printLoadFailure(UncheckedIOException e) {
+    printMessage("Could not load the image: " + e.getCause().getMessage()
+        + ". Please try again.");
+  }
+
+  private void printHistogram(Histogram histogram) {
+    String[] names = {"alpha", "red", "green", "blue", "luminance"};
+    for (int channel = 0; channel < names.length; channel += 1) {
+      printMessage(String.format("%s: min %d, median %d, max %d, mean %.1f", names[channel],
+          histogram.percentile(channel, 0), histogram.percentile(channel, 0.5),
+          histogram.percentile(channel, 1 - Math.ulp(1.0)), histogram.mean(channel)));
+    }
+    printMessage("Please enter another command.");
+  }
+
+  private void runPending(List<PointwiseCommand> pending) {
+    if (pending.isEmpty()) {
+      return;
+    }
+    int count = pending.size();
+    try {
+      new FusedPointwise(pending, fusion).goCmd(image);
+      printMessage(count + " queued command" + (count == 1 ? "" : "s") + " complete.");
+    } catch (IllegalArgumentException e) {
+      printMessage("Invalid argument given to the " + count + " queued command"
+          + (count == 1 ? "" : "s") + ". They were not run.");
+    } catch (UncheckedIOException e) {
+      printMessage("Could not load the image for the " + count + " queued command"
+          + (count == 1 ? "" : "s") + ": " + e.getCause().getMessage() + ".");
+    } finally {
+      pending.clear();
+    }
+  }
+
+  private FusionMode readFusionMode(Scanner s) throws IllegalArgumentException {
+    String mode = s.next();
+    for (FusionMode m : FusionMode.values()) {
+      if (m.toString().equalsIgnoreCase(mode)) {
+        return m;
+      }
+    }
+    throw new IllegalArgumentException("Invalid fusion mode given");
+  }
+
+  private Blur readBlur(Scanner s) throws IllegalArgumentException {
+    if (s.hasNextInt()) {
+      return new Blur(s.nextInt());
+    } else if (s.hasNextDouble()) {
+      return new Blur(s.nextDouble());
+    } else {
+      return new Blur();
+    }
+  }
+
+  private Mosaic readMosaic(Scanner s) throws IllegalArgumentException {
+    if (!s.hasNextInt()) {
+      throw new IllegalArgumentException("Number of seeds must be an integer");
+    }
+    int seeds = s.nextInt();
+    Long randomSeed = s.hasNextLong() ? s.nextLong() : null;
+    SeedPlacement placement = null;
+    for (SeedPlacement p : SeedPlacement.values()) {
+      if (placement == null && s.hasNext(p.toString())) {
+        s.next();
+        placement = p;
+      }
+    }
+    if (randomSeed == null && placement == null) {
+      return new Mosaic(seeds);
+    }
+    return new Mosaic(seeds, randomSeed == null ? new Random().nextLong() : randomSeed,
+        placement == null ? SeedPlacement.RANDOM : placement);
+  }
+
+  private int readSize(Scanner s) throws IllegalArgumentException {
+    if (!s.hasNextInt()) {
+      throw new IllegalArgumentException("Width and height must be integers");
+    }
+    return s.nextInt();
+  }
+
+  private Resize readResize(Scanner s) throws IllegalArgumentException {
+    int width = readSize(s);
+    int height = readSize(s);
+    for (ResampleFilter f : ResampleFilter.values()) {
+      if (s.hasNext(f.toString())) {
+        return new Resize(width, height, s.next());
+      }
+    }
+    return new Resize(width, height, ResampleFilter.BILINEAR.toString());
+  }
+
+  private Convolve readConvolve(Scanner s) throws IllegalArgumentException {
+    String border = s.next();
+    if (!s.hasNextInt()) {
+      throw new IllegalArgumentException("Kernel size must be an integer");
+    }
+    int size = s.nextInt();
+    if (size < 1 || size % 2 == 0) {
+      throw new IllegalArgumentException("Kernel size must be positive and odd");
+    }
+    float[] weights = new float[size * size];
+    for (int i = 0; i < weights.length; i += 1) {
+      if (!s.hasNextFloat()) {
+        throw new IllegalArgumentException("Kernel weights must be numbers");
+      }
+      weights[i] = s.nextFloat();
+    }
+    return new Convolve(border, size, weights);
+  }
+
+  private ColorMatrixCommand readColorMatrix(Scanner s) throws IllegalArgumentException {
+    if (!s.hasNextInt()) {
+      throw new IllegalArgumentException("Number of columns must be an integer");
+    }
+    int columns = s.nextInt();
+    if (columns != 3 && columns != 4) {
+      throw new IllegalArgumentException("Number of columns must be 3 or 4");
+    }
+    double[][] rows = new double[3][columns];
+    for (int i = 0; i < 3; i += 1) {
+      for (int j = 0; j < columns; j += 1) {
+        if (!s.hasNextDouble()) {
+          throw new IllegalArgumentException("Matrix values must be numbers");
         }
+        rows[i][j] = s.nextDouble();
       }
     }
+    return new ColorMatrixCommand(rows);
   }
 
   private void printMessage(String message) {
@@ -0,0 +1,20 @@
+package controller.command;
+
+import model.image.LayeredImage;
+
+/**
+ * Implementation of ImageCommand that represents the auto levels operation.
+ * This operation stretches the red, green and blue values of the layer that is currently being
+ * edited so that each covers the whole range.
+ */
+public class AutoLevels implements ImageCommand {
+
+  /**
+   * Delegates the auto levels operation to the given LayeredImage.
+   * @param image the image to be changed
+   */
+  @Override
+  public void goCmd(LayeredImage image) {
+    image.autoLevels();
+  }
+}
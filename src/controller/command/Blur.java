@@ -4,18 +4,56 @@ import model.image.LayeredImage;
 
 /**
  * Implementation of ImageCommand that represents the blur operation.
- * This operation blurs the layer that is currently being edited.
+ * This operation blurs the layer that is currently being edited, either by a set amount with a
+ * 3x3 kernel or by any amount with a Gaussian of a given radius or standard deviation.
  */
 public class Blur implements ImageCommand {
 
+  private final double sigma;
+
+  /**
+   * Creates a new Blur object that blurs by a set amount.
+   */
+  public Blur() {
+    this.sigma = 0;
+  }
+
+  /**
+   * Creates a new Blur object that blurs with the given radius. A radius of 1 is the set amount
+   * blurred by the 3x3 kernel, and larger radii blur with a Gaussian whose standard deviation
+   * grows with the radius in the same proportion.
+   * @param radius the radius of the blur in pixels
+   * @throws IllegalArgumentException if radius is less than 1
+   */
+  public Blur(int radius) throws IllegalArgumentException {
+    if (radius < 1) {
+      throw new IllegalArgumentException("Blur radius must be at least 1");
+    }
+    this.sigma = radius == 1 ? 0 : radius * Math.sqrt(0.5);
+  }
+
+  /**
+   * Creates a new Blur object that blurs with a Gaussian of the given standard deviation.
+   * @param sigma the standard deviation of the blur in pixels
+   * @throws IllegalArgumentException if sigma is not positive and finite
+   */
+  public Blur(double sigma) throws IllegalArgumentException {
+    if (!(sigma > 0) || Double.isInfinite(sigma)) {
+      throw new IllegalArgumentException("Sigma must be positive and finite");
+    }
+    this.sigma = sigma;
+  }
+
   /**
    * Delegates the blur operation to the given LayeredImage.
    * @param image the image to be blurred
    */
   @Override
   public void goCmd(LayeredImage image) {
-    image.blurImage();
+    if (sigma == 0) {
+      image.blurImage();
+    } else {
+      image.blurImage(sigma);
+    }
   }
 }
-
-
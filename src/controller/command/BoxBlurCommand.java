@@ -0,0 +1,34 @@
+package controller.command;
+
+import model.image.LayeredImage;
+
+/**
+ * Implementation of ImageCommand that represents the box blur operation.
+ * This operation replaces every pixel of the layer that is currently being edited with the mean of
+ * the square of pixels around it.
+ */
+public class BoxBlurCommand implements ImageCommand {
+
+  private final int radius;
+
+  /**
+   * Creates a new BoxBlurCommand object.
+   * @param radius how far the square reaches from each pixel in each direction
+   * @throws IllegalArgumentException if radius is negative
+   */
+  public BoxBlurCommand(int radius) throws IllegalArgumentException {
+    if (radius < 0) {
+      throw new IllegalArgumentException("Radius cannot be negative");
+    }
+    this.radius = radius;
+  }
+
+  /**
+   * Delegates the box blur operation to the given LayeredImage.
+   * @param image the image to be blurred
+   */
+  @Override
+  public void goCmd(LayeredImage image) {
+    image.boxBlur(radius);
+  }
+}
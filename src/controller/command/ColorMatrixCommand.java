@@ -0,0 +1,37 @@
+package controller.command;
+
+import model.image.ColorMatrix;
+import model.image.LayeredImage;
+
+/**
+ * Implementation of ImageCommand that represents the colormatrix operation.
+ * This operation applies a custom color transformation to the layer that is currently being
+ * edited.
+ */
+public class ColorMatrixCommand implements PointwiseCommand {
+
+  private ColorMatrix matrix;
+
+  /**
+   * Creates a new ColorMatrixCommand object.
+   * @param rows the three rows of the matrix, each with three coefficients and an optional offset
+   * @throws IllegalArgumentException if the rows do not make a valid color matrix
+   */
+  public ColorMatrixCommand(double[][] rows) throws IllegalArgumentException {
+    this.matrix = new ColorMatrix(rows);
+  }
+
+  /**
+   * Delegates the colormatrix operation to the given LayeredImage.
+   * @param image the LayeredImage to be transformed.
+   */
+  @Override
+  public void goCmd(LayeredImage image) {
+    image.applyColorMatrix(matrix);
+  }
+
+  @Override
+  public ColorMatrix getMatrix() {
+    return matrix;
+  }
+}
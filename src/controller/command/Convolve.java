@@ -0,0 +1,54 @@
+package controller.command;
+
+import model.image.BorderMode;
+import model.image.Kernel;
+import model.image.LayeredImage;
+
+/**
+ * Implementation of ImageCommand that represents the convolve operation.
+ * This operation applies a custom square kernel to the layer that is currently being edited.
+ */
+public class Convolve implements ImageCommand {
+
+  private Kernel kernel;
+  private BorderMode border;
+
+  /**
+   * Creates a new Convolve object.
+   * @param border the name of the border mode to use at the edges of the image
+   * @param size the width and height of the kernel
+   * @param weights the weights of the kernel in row-major order
+   * @throws IllegalArgumentException if border cannot be recognized or the kernel is invalid
+   */
+  public Convolve(String border, int size, float[] weights) throws IllegalArgumentException {
+    if (border == null) {
+      throw new IllegalArgumentException("Border mode cannot be null");
+    }
+    this.kernel = new Kernel(size, size, weights);
+    this.border = setBorderMode(border);
+  }
+
+  /**
+   * Delegates the convolve operation to the given LayeredImage.
+   * @param image the LayeredImage to be filtered.
+   */
+  @Override
+  public void goCmd(LayeredImage image) {
+    image.convolve(kernel, border);
+  }
+
+  private static BorderMode setBorderMode(String border) throws IllegalArgumentException {
+    switch (border.toLowerCase()) {
+      case "zero":
+        return BorderMode.ZERO;
+      case "clamp":
+        return BorderMode.CLAMP;
+      case "mirror":
+        return BorderMode.MIRROR;
+      case "wrap":
+        return BorderMode.WRAP;
+      default:
+        throw new IllegalArgumentException("Invalid border mode given");
+    }
+  }
+}
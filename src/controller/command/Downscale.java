@@ -0,0 +1,36 @@
+package controller.command;
+
+import model.image.LayeredImage;
+
+/**
+ * Implementation of ImageCommand that represents the downscale operation.
+ * This operation shrinks every layer of the image to a new width and height.
+ */
+public class Downscale implements ImageCommand {
+
+  private final int width;
+  private final int height;
+
+  /**
+   * Creates a new Downscale object.
+   * @param width the width of the downscaled image
+   * @param height the height of the downscaled image
+   * @throws IllegalArgumentException if width or height are less than 1
+   */
+  public Downscale(int width, int height) throws IllegalArgumentException {
+    if (width < 1 || height < 1) {
+      throw new IllegalArgumentException("Width and height must be positive");
+    }
+    this.width = width;
+    this.height = height;
+  }
+
+  /**
+   * Delegates the downscale operation to the given LayeredImage.
+   * @param image the image to be downscaled
+   */
+  @Override
+  public void goCmd(LayeredImage image) {
+    image.downscale(width, height);
+  }
+}
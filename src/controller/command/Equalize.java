@@ -0,0 +1,20 @@
+package controller.command;
+
+import model.image.LayeredImage;
+
+/**
+ * Implementation of ImageCommand that represents the equalize operation.
+ * This operation spreads the red, green and blue values of the layer that is currently being
+ * edited as evenly as possible over the whole range.
+ */
+public class Equalize implements ImageCommand {
+
+  /**
+   * Delegates the equalize operation to the given LayeredImage.
+   * @param image the image to be changed
+   */
+  @Override
+  public void goCmd(LayeredImage image) {
+    image.equalize();
+  }
+}
@@ -0,0 +1,66 @@
+package controller.command;
+
+import controller.FusionMode;
+import java.util.ArrayList;
+import java.util.List;
+import model.image.ColorMatrix;
+import model.image.LayeredImage;
+
+/**
+ * Implementation of ImageCommand that runs a run of consecutive pointwise commands together.
+ * Depending on the {@link FusionMode}, the commands are applied in a single pass with clamping
+ * after each one, composed into a single color matrix, or run one after another.
+ */
+public class FusedPointwise implements ImageCommand {
+
+  private final List<PointwiseCommand> commands;
+  private final FusionMode mode;
+
+  /**
+   * Creates a new FusedPointwise object.
+   * @param commands the pointwise commands to be run, in order
+   * @param mode how the commands are combined
+   * @throws IllegalArgumentException if commands or mode is null, or commands is empty or
+   *                                  contains null
+   */
+  public FusedPointwise(List<PointwiseCommand> commands, FusionMode mode)
+      throws IllegalArgumentException {
+    if (commands == null || mode == null || commands.contains(null)) {
+      throw new IllegalArgumentException("Commands and fusion mode cannot be null");
+    }
+    if (commands.isEmpty()) {
+      throw new IllegalArgumentException("There must be at least one command to run");
+    }
+    this.commands = new ArrayList<>(commands);
+    this.mode = mode;
+  }
+
+  /**
+   * Delegates the fused operations to the given LayeredImage.
+   * @param image the LayeredImage to be transformed.
+   */
+  @Override
+  public void goCmd(LayeredImage image) {
+    switch (mode) {
+      case EXACT:
+        List<ColorMatrix> matrices = new ArrayList<>();
+        for (PointwiseCommand command : commands) {
+          matrices.add(command.getMatrix());
+        }
+        image.applyColorMatrices(matrices);
+        break;
+      case FAST:
+        ColorMatrix composed = commands.get(0).getMatrix();
+        for (int i = 1; i < commands.size(); i += 1) {
+          composed = composed.then(commands.get(i).getMatrix());
+        }
+        image.applyColorMatrix(composed);
+        break;
+      default:
+        for (PointwiseCommand command : commands) {
+          command.goCmd(image);
+        }
+        break;
+    }
+  }
+}
@@ -1,12 +1,13 @@
 package controller.command;
 
+import model.image.ColorMatrix;
 import model.image.LayeredImage;
 
 /**
  * Implementation of ImageCommand that represents the greyscale operation.
  * This operation sets the image in the layer that is currently being edited to greyscale.
  */
-public class Greyscale implements ImageCommand {
+public class Greyscale implements PointwiseCommand {
 
   /**
    * Delegates the greyscale operation to the given LayeredImage.
@@ -16,4 +17,9 @@ public class Greyscale implements ImageCommand {
   public void goCmd(LayeredImage image) {
     image.toGreyscale();
   }
+
+  @Override
+  public ColorMatrix getMatrix() {
+    return ColorMatrix.GREYSCALE;
+  }
 }
@@ -0,0 +1,39 @@
+package controller.command;
+
+import controller.ImportUtil;
+import java.io.IOException;
+import model.image.LayeredImage;
+
+/**
+ * Implementation of ImageCommand that represents the loadProject operation.
+ * This operation replaces the current LayeredImage with the layers of the
+ * specified project file, which are each read when first used.
+ */
+public class LoadProject implements ImageCommand {
+  private String fileName;
+
+  /**
+   * Creates a new LoadProject object.
+   * @param fileName the name of the project file to be opened
+   * @throws IllegalArgumentException if fileName is null
+   */
+  public LoadProject(String fileName) throws IllegalArgumentException {
+    if (fileName == null) {
+      throw new IllegalArgumentException("File name cannot be null");
+    }
+    this.fileName = fileName;
+  }
+
+  /**
+   * Delegates the loadProject operation to the given LayeredImage.
+   * @param image the LayeredImage to which the specified project is imported.
+   */
+  @Override
+  public void goCmd(LayeredImage image) {
+    try {
+      image.replaceLayeredImage(ImportUtil.importProject(fileName));
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+}
@@ -0,0 +1,50 @@
+package controller.command;
+
+import controller.ImportUtil;
+import java.io.IOException;
+import model.image.Image;
+import model.image.LayeredImage;
+
+/**
+ * Implementation of ImageCommand that represents the loadRaw operation.
+ * This operation maps a file of raw RGBA pixels of the given size
+ * and sets it as the image for the layer currently being edited.
+ */
+public class LoadRaw implements ImageCommand {
+  private String fileName;
+  private int width;
+  private int height;
+
+  /**
+   * Creates a new LoadRaw object.
+   * @param fileName the name of the file to be imported
+   * @param width the width of the image held in the file
+   * @param height the height of the image held in the file
+   * @throws IllegalArgumentException if fileName is null or width or height are negative
+   */
+  public LoadRaw(String fileName, int width, int height) throws IllegalArgumentException {
+    if (fileName == null) {
+      throw new IllegalArgumentException("File name cannot be null");
+    }
+    if (width < 0 || height < 0) {
+      throw new IllegalArgumentException("Width and height cannot be negative");
+    }
+    this.fileName = fileName;
+    this.width = width;
+    this.height = height;
+  }
+
+  /**
+   * Delegates the load operation to the given LayeredImage.
+   * @param image the LayeredImage to which the specified image is imported.
+   */
+  @Override
+  public void goCmd(LayeredImage image) {
+    try {
+      Image importedImage = ImportUtil.importRaw(fileName, width, height);
+      image.loadImage(importedImage);
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+}
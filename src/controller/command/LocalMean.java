@@ -0,0 +1,34 @@
+package controller.command;
+
+import model.image.LayeredImage;
+
+/**
+ * Implementation of ImageCommand that represents the local mean normalization operation.
+ * This operation subtracts from every pixel of the layer that is currently being edited the mean
+ * of the square of pixels around it, evening out gradual changes in brightness.
+ */
+public class LocalMean implements ImageCommand {
+
+  private final int radius;
+
+  /**
+   * Creates a new LocalMean object.
+   * @param radius how far the square reaches from each pixel in each direction
+   * @throws IllegalArgumentException if radius is negative
+   */
+  public LocalMean(int radius) throws IllegalArgumentException {
+    if (radius < 0) {
+      throw new IllegalArgumentException("Radius cannot be negative");
+    }
+    this.radius = radius;
+  }
+
+  /**
+   * Delegates the local mean normalization operation to the given LayeredImage.
+   * @param image the image to be normalized
+   */
+  @Override
+  public void goCmd(LayeredImage image) {
+    image.normalizeLocalMean(radius);
+  }
+}
@@ -0,0 +1,66 @@
+package controller.command;
+
+import model.image.LayeredImage;
+import model.image.SeedPlacement;
+
+/**
+ * Implementation of ImageCommand that represents the mosaic operation.
+ * This operation divides the layer that is currently being edited into regions around a number of
+ * seeds and fills each region with its average color. Giving a random seed makes the result
+ * repeatable.
+ */
+public class Mosaic implements ImageCommand {
+
+  private final int seeds;
+  private final Long randomSeed;
+  private final SeedPlacement placement;
+
+  /**
+   * Creates a new Mosaic object that places the given number of seeds at random, differently
+   * each time it is run.
+   * @param seeds the number of seeds to use
+   * @throws IllegalArgumentException if seeds is less than 1
+   */
+  public Mosaic(int seeds) throws IllegalArgumentException {
+    if (seeds < 1) {
+      throw new IllegalArgumentException("Number of seeds must be at least 1");
+    }
+    this.seeds = seeds;
+    this.randomSeed = null;
+    this.placement = SeedPlacement.RANDOM;
+  }
+
+  /**
+   * Creates a new Mosaic object that places the given number of seeds with the given strategy
+   * from the given random seed, so it gives the same result every time it is run.
+   * @param seeds the number of seeds to use
+   * @param randomSeed the seed of the random number generator that places the seeds
+   * @param placement how the seeds are placed
+   * @throws IllegalArgumentException if seeds is less than 1 or placement is null
+   */
+  public Mosaic(int seeds, long randomSeed, SeedPlacement placement)
+      throws IllegalArgumentException {
+    if (seeds < 1) {
+      throw new IllegalArgumentException("Number of seeds must be at least 1");
+    }
+    if (placement == null) {
+      throw new IllegalArgumentException("Seed placement cannot be null");
+    }
+    this.seeds = seeds;
+    this.randomSeed = randomSeed;
+    this.placement = placement;
+  }
+
+  /**
+   * Delegates the mosaic operation to the given LayeredImage.
+   * @param image the image to be changed
+   */
+  @Override
+  public void goCmd(LayeredImage image) {
+    if (randomSeed == null) {
+      image.mosaic(seeds);
+    } else {
+      image.mosaic(seeds, randomSeed, placement);
+    }
+  }
+}
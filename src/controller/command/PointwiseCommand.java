@@ -0,0 +1,16 @@
+package controller.command;
+
+import model.image.ColorMatrix;
+
+/**
+ * An ImageCommand whose result for each pixel depends only on that pixel, expressed as a color
+ * matrix. Consecutive pointwise commands can be fused and run as a single pass over the image.
+ */
+public interface PointwiseCommand extends ImageCommand {
+
+  /**
+   * Gets the color matrix that this command applies.
+   * @return the color matrix applied by this command
+   */
+  ColorMatrix getMatrix();
+}
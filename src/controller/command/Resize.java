@@ -0,0 +1,53 @@
+package controller.command;
+
+import model.image.LayeredImage;
+import model.image.ResampleFilter;
+
+/**
+ * Implementation of ImageCommand that represents the resize operation.
+ * This operation resizes every layer of the image to a new width and height with a given filter.
+ */
+public class Resize implements ImageCommand {
+
+  private final int width;
+  private final int height;
+  private final ResampleFilter filter;
+
+  /**
+   * Creates a new Resize object.
+   * @param width the width of the resized image
+   * @param height the height of the resized image
+   * @param filter the name of the filter to resize with
+   * @throws IllegalArgumentException if width or height are less than 1, or filter cannot be
+   *                                  recognized
+   */
+  public Resize(int width, int height, String filter) throws IllegalArgumentException {
+    if (width < 1 || height < 1) {
+      throw new IllegalArgumentException("Width and height must be positive");
+    }
+    if (filter == null) {
+      throw new IllegalArgumentException("Resample filter cannot be null");
+    }
+    this.width = width;
+    this.height = height;
+    this.filter = setFilter(filter);
+  }
+
+  private ResampleFilter setFilter(String filter) throws IllegalArgumentException {
+    for (ResampleFilter f : ResampleFilter.values()) {
+      if (f.toString().equalsIgnoreCase(filter)) {
+        return f;
+      }
+    }
+    throw new IllegalArgumentException("Invalid resample filter given");
+  }
+
+  /**
+   * Delegates the resize operation to the given LayeredImage.
+   * @param image the image to be resized
+   */
+  @Override
+  public void goCmd(LayeredImage image) {
+    image.resize(width, height, filter);
+  }
+}
@@ -0,0 +1,39 @@
+package controller.command;
+
+import java.io.IOException;
+import model.image.LayeredImage;
+
+/**
+ * Implementation of ImageCommand that represents the saveProject operation.
+ * This operation exports every layer of a LayeredImage to a single
+ * project file with the given name.
+ */
+public class SaveProject implements ImageCommand {
+
+  private String fileName;
+
+  /**
+   * Creates a new SaveProject object.
+   * @param fileName the name to be given to the project file
+   * @throws IllegalArgumentException if fileName is null
+   */
+  public SaveProject(String fileName) throws IllegalArgumentException {
+    if (fileName == null) {
+      throw new IllegalArgumentException("File name cannot be null");
+    }
+    this.fileName = fileName;
+  }
+
+  /**
+   * Delegates the saveProject operation to the given LayeredImage.
+   * @param image the LayeredImage to be exported.
+   */
+  @Override
+  public void goCmd(LayeredImage image) {
+    try {
+      image.exportProject(fileName);
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+}
@@ -1,12 +1,13 @@
 package controller.command;
 
+import model.image.ColorMatrix;
 import model.image.LayeredImage;
 
 /**
  * Implementation of ImageCommand that represents the sepia operation.
  * This operation sets the image in the layer that is currently being edited to sepia.
  */
-public class Sepia implements ImageCommand {
+public class Sepia implements PointwiseCommand {
 
   /**
    * Delegates the sepia operation to the given LayeredImage.
@@ -16,4 +17,9 @@ public class Sepia implements ImageCommand {
   public void goCmd(LayeredImage image) {
     image.toSepia();
   }
+
+  @Override
+  public ColorMatrix getMatrix() {
+    return ColorMatrix.SEPIA;
+  }
 }
@@ -0,0 +1,55 @@
+package controller.command;
+
+import controller.FileType;
+import controller.ImportUtil;
+import java.io.IOException;
+import model.image.LayeredImage;
+
+/**
+ * Implementation of ImageCommand that represents the thumbnail operation.
+ * This operation exports a resized copy of the layer that is currently being edited to the
+ * specified file format, without changing the layer.
+ */
+public class Thumbnail implements ImageCommand {
+
+  private final String fileName;
+  private final FileType fileType;
+  private final int width;
+  private final int height;
+
+  /**
+   * Creates a new Thumbnail object.
+   * @param fileName the name to be given to the resulting file
+   * @param fileType the file type that the image is exported to
+   * @param width the width of the exported image
+   * @param height the height of the exported image
+   * @throws IllegalArgumentException if fileName is null, fileType cannot be recognized, or width
+   *                                  or height are less than 1
+   */
+  public Thumbnail(String fileName, String fileType, int width, int height)
+      throws IllegalArgumentException {
+    if (fileName == null || fileType == null) {
+      throw new IllegalArgumentException("arguments cannot be null");
+    }
+    if (width < 1 || height < 1) {
+      throw new IllegalArgumentException("Width and height must be positive");
+    }
+    this.fileName = fileName;
+    this.fileType = ImportUtil.setFileType(fileType);
+    this.width = width;
+    this.height = height;
+  }
+
+  /**
+   * Delegates the thumbnail operation to the given LayeredImage.
+   * @param image the LayeredImage whose current layer is exported
+   */
+  @Override
+  public void goCmd(LayeredImage image) {
+    try {
+      image.exportThumbnail(fileName, fileType, width, height);
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+}
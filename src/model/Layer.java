@@ -1,10 +1,9 @@
 package model;
 
-import java.util.ArrayList;
 import java.util.Objects;
 import model.image.Image;
-import model.image.ImageImpl;
-import model.pixel.Pixel;
+import model.image.ImagePyramid;
+import model.image.ResampleFilter;
 
 /**
  * Represents a layer in a multi-layered image.
@@ -12,6 +11,8 @@ import model.pixel.Pixel;
 public class Layer {
 
   private Image image;
+  private ImagePyramid pyramid;
+  private boolean ownsImage;
   private int layerNumber;
   private boolean isVisible;
   private boolean isBeingEdited;
@@ -38,13 +39,45 @@ public class Layer {
   }
 
   /**
-   * Gets the image stored in this layer.
+   * Gets the image stored in this layer. The returned copy shares its pixels with this layer
+   * until either is modified, so reading from it does not copy any pixels.
    *
    * @return a copy of this layer's image
    */
   public Image getImage() {
-    ArrayList<ArrayList<Pixel>> pixelsCopy = image.getPixels();
-    return new ImageImpl(pixelsCopy);
+    return image.copy();
+  }
+
+  /**
+   * Gets the image stored in this layer itself rather than a copy, for reading pixels without
+   * sharing them with a new copy. The returned image must not be changed.
+   *
+   * @return this layer's image
+   */
+  public Image viewImage() {
+    return image;
+  }
+
+  /**
+   * Gets the image stored in this layer itself rather than a copy, so that it can be changed in
+   * place. The first call after the image is set swaps it for a copy, since the image the layer
+   * was given may be used elsewhere. Its pixels are only moved to storage of their own if they are
+   * still shared with an earlier copy, so a run of small changes copies them at most once. Any
+   * smaller versions kept of the image are dropped.
+   *
+   * @return this layer's image
+   */
+  public Image editImage() {
+    if (pyramid != null) {
+      pyramid.invalidate();
+      pyramid = null;
+    }
+    if (!ownsImage) {
+      // The image this layer was given may still be used elsewhere, so it is never changed.
+      image = image.copy();
+      ownsImage = true;
+    }
+    return image;
   }
 
   /**
@@ -53,7 +86,33 @@ public class Layer {
    * @param image the image to be set
    */
   public void setImage(Image image) {
+    if (pyramid != null) {
+      pyramid.invalidate();
+      pyramid = null;
+    }
     this.image = image;
+    this.ownsImage = false;
+  }
+
+  /**
+   * Gets a copy of this layer's image resized to the given width and height. Sizes smaller than
+   * the image are resized from a pyramid of halved versions of it, which is kept until this
+   * layer's image is set or edited again, so making several small versions of the same image is
+   * cheap.
+   *
+   * @param width  the width of the resized image
+   * @param height the height of the resized image
+   * @param filter the filter used to compute the resized pixels
+   * @return a resized copy of this layer's image
+   * @throws IllegalArgumentException if width or height are less than 1, or filter is null
+   */
+  public Image getScaledImage(int width, int height, ResampleFilter filter)
+      throws IllegalArgumentException {
+    if (pyramid == null) {
+      // The pyramid is dropped whenever the image is set or edited, so it can use the image itself.
+      pyramid = new ImagePyramid(image);
+    }
+    return pyramid.resize(width, height, filter);
   }
 
   /**
@@ -0,0 +1,119 @@
+package model.image;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Places points with Mitchell's best-candidate algorithm, which approximates Poisson-disc
+ * sampling. Each new point is the one of several random candidates that lies farthest from every
+ * point placed so far. Unlike dart throwing with a fixed minimum distance, this always produces
+ * exactly the requested number of points.
+ *
+ * <p>Placed points are kept in a uniform grid, with cells about as large as the expected spacing
+ * between points, so the distance from a candidate to its nearest point is found by searching the
+ * cells around it rather than every point.
+ */
+final class BestCandidateSampler {
+
+  private static final int CANDIDATES = 10;
+
+  private final int points;
+  private final int width;
+  private final int height;
+  private final int cellSize;
+  private final int columns;
+  private final int rows;
+  private final int[] head;
+  private final int[] next;
+  private int[] placedX;
+  private int[] placedY;
+
+  /**
+   * Creates a sampler for the given number of points in an area of the given size.
+   *
+   * @param points the number of points to be placed
+   * @param width  the width of the area
+   * @param height the height of the area
+   */
+  BestCandidateSampler(int points, int width, int height) {
+    this.points = points;
+    this.width = width;
+    this.height = height;
+    this.cellSize = Math.max(1, (int) Math.sqrt((double) width * height / Math.max(1, points)));
+    this.columns = (width + cellSize - 1) / cellSize;
+    this.rows = (height + cellSize - 1) / cellSize;
+    this.head = new int[columns * rows];
+    this.next = new int[points];
+  }
+
+  /**
+   * Places every point.
+   *
+   * @param rand the source of randomness for the candidates
+   * @param x    the array the x-coordinate of each point is written to
+   * @param y    the array the y-coordinate of each point is written to
+   */
+  void place(Random rand, int[] x, int[] y) {
+    this.placedX = x;
+    this.placedY = y;
+    Arrays.fill(head, -1);
+    for (int i = 0; i < points; i += 1) {
+      int bestX = rand.nextInt(width);
+      int bestY = rand.nextInt(height);
+      long bestDist = i == 0 ? 0 : nearestDistance(bestX, bestY, -1);
+      for (int c = 1; c < CANDIDATES && i > 0; c += 1) {
+        int cx = rand.nextInt(width);
+        int cy = rand.nextInt(height);
+        long dist = nearestDistance(cx, cy, bestDist);
+        if (dist > bestDist) {
+          bestDist = dist;
+          bestX = cx;
+          bestY = cy;
+        }
+      }
+      x[i] = bestX;
+      y[i] = bestY;
+      int cell = (bestY / cellSize) * columns + bestX / cellSize;
+      next[i] = head[cell];
+      head[cell] = i;
+    }
+  }
+
+  /**
+   * Gets the squared distance from the given position to the nearest placed point. The search
+   * stops early once the distance is known to be at most floor, since such a candidate cannot
+   * beat the best one so far.
+   */
+  private long nearestDistance(int x, int y, long floor) {
+    long best = Long.MAX_VALUE;
+    int cx = x / cellSize;
+    int cy = y / cellSize;
+    int maxRing = Math.max(Math.max(cx, columns - 1 - cx), Math.max(cy, rows - 1 - cy));
+    for (int ring = 0; ring <= maxRing; ring += 1) {
+      long gap = (long) Math.max(0, ring - 1) * cellSize;
+      if (gap * gap >= best) {
+        break;
+      }
+      for (int gy = cy - ring; gy <= cy + ring; gy += 1) {
+        if (gy < 0 || gy >= rows) {
+          continue;
+        }
+        int step = gy == cy - ring || gy == cy + ring ? 1 : Math.max(1, 2 * ring);
+        for (int gx = cx - ring; gx <= cx + ring; gx += step) {
+          if (gx < 0 || gx >= columns) {
+            continue;
+          }
+          for (int p = head[gy * columns + gx]; p >= 0; p = next[p]) {
+            long dx = placedX[p] - x;
+            long dy = placedY[p] - y;
+            best = Math.min(best, dx * dx + dy * dy);
+          }
+        }
+      }
+      if (best <= floor) {
+        return best;
+      }
+    }
+    return best;
+  }
+}
@@ -0,0 +1,69 @@
+package model.image;
+
+/**
+ * Enumeration for the ways a convolution can read pixels that fall outside of an image.
+ */
+public enum BorderMode {
+  /**
+   * Pixels outside of the image are treated as black.
+   */
+  ZERO,
+  /**
+   * Pixels outside of the image take the value of the nearest edge pixel.
+   */
+  CLAMP,
+  /**
+   * Pixels outside of the image are reflected back in across the edge, without repeating the
+   * edge pixel.
+   */
+  MIRROR,
+  /**
+   * Pixels outside of the image are taken from the opposite side of the image.
+   */
+  WRAP;
+
+  /**
+   * Maps a coordinate that may be outside of [0, size) back into the image.
+   *
+   * @param i    the coordinate to be mapped
+   * @param size the width or height of the image
+   * @return the mapped coordinate, or -1 if the coordinate has no pixel under this border mode
+   */
+  public int map(int i, int size) {
+    if (i >= 0 && i < size) {
+      return i;
+    }
+    switch (this) {
+      case CLAMP:
+        return i < 0 ? 0 : size - 1;
+      case MIRROR:
+        if (size == 1) {
+          return 0;
+        }
+        int period = 2 * (size - 1);
+        int m = Math.floorMod(i, period);
+        return m < size ? m : period - m;
+      case WRAP:
+        return Math.floorMod(i, size);
+      default:
+        return -1;
+    }
+  }
+
+  @Override
+  public String toString() {
+    switch (this) {
+      case ZERO:
+        return "zero";
+      case CLAMP:
+        return "clamp";
+      case MIRROR:
+        return "mirror";
+      case WRAP:
+        return "wrap";
+      default:
+        break;
+    }
+    return "";
+  }
+}
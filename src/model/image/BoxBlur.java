@@ -0,0 +1,189 @@
+package model.image;
+
+/**
+ * Approximates a Gaussian blur of any size with three successive box blurs in each direction.
+ * Each box blur keeps a running sum over a sliding window, adding the value entering the window
+ * and removing the one leaving it, so the cost per pixel is the same for every radius.
+ *
+ * <p>The box widths are chosen so that the variance of the three boxes together matches the
+ * requested standard deviation, following "Fast Almost-Gaussian Filtering" (Kovesi, 2010). Pixels
+ * outside of the image take the value of the nearest edge pixel.
+ *
+ * <p>Channel values are kept in fixed point with 8 fractional bits between passes so that rounding
+ * does not build up over the six passes, and each band of rows is processed in parallel through
+ * {@link Parallel}.
+ */
+final class BoxBlur {
+
+  private static final int PASSES = 3;
+  private static final int FRACTION_BITS = 8;
+
+  private BoxBlur() {
+  }
+
+  /**
+   * Blurs the given pixels with a Gaussian of the given standard deviation.
+   *
+   * @param src    the packed ARGB values to be blurred
+   * @param width  the width of the image
+   * @param height the height of the image
+   * @param stride the distance in src between the start of one row and the next
+   * @param sigma  the standard deviation of the blur in pixels
+   * @return a new tightly packed array holding the blurred image
+   */
+  static int[] blur(int[] src, int width, int height, int stride, double sigma) {
+    int[] radii = boxRadii(sigma);
+    int[][] a = new int[3][width * height];
+    int[][] b = new int[3][width * height];
+    Parallel.forEachBand(width, height, (rowStart, rowEnd) -> {
+      for (int y = rowStart; y < rowEnd; y += 1) {
+        for (int x = 0; x < width; x += 1) {
+          int argb = src[y * stride + x];
+          a[0][y * width + x] = ((argb >> 16) & 0xFF) << FRACTION_BITS;
+          a[1][y * width + x] = ((argb >> 8) & 0xFF) << FRACTION_BITS;
+          a[2][y * width + x] = (argb & 0xFF) << FRACTION_BITS;
+        }
+      }
+    });
+
+    int[][] in = a;
+    int[][] out = b;
+    for (int radius : radii) {
+      int[][] from = in;
+      int[][] to = out;
+      Parallel.forEachBand(width, height, (rowStart, rowEnd) ->
+          horizontalPass(from, to, width, radius, rowStart, rowEnd));
+      in = to;
+      out = from;
+    }
+    for (int radius : radii) {
+      int[][] from = in;
+      int[][] to = out;
+      Parallel.forEachBand(width, height, (rowStart, rowEnd) ->
+          verticalPass(from, to, width, height, radius, rowStart, rowEnd));
+      in = to;
+      out = from;
+    }
+
+    int[][] result = in;
+    int[] dst = new int[width * height];
+    int half = 1 << (FRACTION_BITS - 1);
+    Parallel.forEachBand(width, height, (rowStart, rowEnd) -> {
+      for (int y = rowStart; y < rowEnd; y += 1) {
+        for (int x = 0; x < width; x += 1) {
+          int i = y * width + x;
+          dst[i] = (src[y * stride + x] & 0xFF000000)
+              | (Math.min(255, (result[0][i] + half) >> FRACTION_BITS) << 16)
+              | (Math.min(255, (result[1][i] + half) >> FRACTION_BITS) << 8)
+              | Math.min(255, (result[2][i] + half) >> FRACTION_BITS);
+        }
+      }
+    });
+    return dst;
+  }
+
+  /**
+   * Gets the radius of each of the three boxes whose combined variance is closest to sigma
+   * squared, from smallest to largest. A radius of 0 leaves the image unchanged.
+   *
+   * @throws IllegalArgumentException if the radii would be larger than Integer.MAX_VALUE / 2
+   */
+  static int[] boxRadii(double sigma) throws IllegalArgumentException {
+    double variance = sigma * sigma;
+    double width = Math.floor(Math.sqrt(12 * variance / PASSES + 1));
+    if (!(width <= Integer.MAX_VALUE)) {
+      throw new IllegalArgumentException("Sigma is too large");
+    }
+    int lower = (int) width;
+    if (lower % 2 == 0) {
+      lower -= 1;
+    }
+    long lowerCount = Math.round((12 * variance - PASSES * (double) lower * lower
+        - 4.0 * PASSES * lower - 3.0 * PASSES) / (-4.0 * lower - 4));
+    int[] radii = new int[PASSES];
+    for (int i = 0; i < PASSES; i += 1) {
+      radii[i] = i < lowerCount ? (lower - 1) / 2 : (lower + 1) / 2;
+    }
+    return radii;
+  }
+
+  /**
+   * Box blurs the rows in [rowStart, rowEnd) of each plane in src horizontally into dst.
+   */
+  private static void horizontalPass(int[][] src, int[][] dst, int width, int radius,
+      int rowStart, int rowEnd) {
+    int size = 2 * radius + 1;
+    long inverse = reciprocal(size);
+    for (int c = 0; c < 3; c += 1) {
+      int[] in = src[c];
+      int[] out = dst[c];
+      for (int y = rowStart; y < rowEnd; y += 1) {
+        int row = y * width;
+        long sum = windowSum(in, row, 1, width, -radius, radius);
+        for (int x = 0; x < width; x += 1) {
+          out[row + x] = (int) (((sum + size / 2) * inverse) >>> 32);
+          sum += in[row + Math.min(x + radius + 1, width - 1)]
+              - in[row + Math.max(x - radius, 0)];
+        }
+      }
+    }
+  }
+
+  /**
+   * Box blurs each plane in src vertically into the rows in [rowStart, rowEnd) of dst. Each
+   * column keeps its own running sum so that whole rows are added and removed at a time.
+   */
+  private static void verticalPass(int[][] src, int[][] dst, int width, int height, int radius,
+      int rowStart, int rowEnd) {
+    if (rowStart >= rowEnd) {
+      return;
+    }
+    int size = 2 * radius + 1;
+    long inverse = reciprocal(size);
+    long[] sums = new long[width];
+    for (int c = 0; c < 3; c += 1) {
+      int[] in = src[c];
+      int[] out = dst[c];
+      for (int x = 0; x < width; x += 1) {
+        sums[x] = windowSum(in, x, width, height, rowStart - radius, rowStart + radius);
+      }
+      for (int y = rowStart; y < rowEnd; y += 1) {
+        int row = y * width;
+        int entering = Math.min(y + radius + 1, height - 1) * width;
+        int leaving = Math.max(y - radius, 0) * width;
+        for (int x = 0; x < width; x += 1) {
+          out[row + x] = (int) (((sums[x] + size / 2) * inverse) >>> 32);
+          sums[x] += in[entering + x] - in[leaving + x];
+        }
+      }
+    }
+  }
+
+  /**
+   * Gets 2^32 / size rounded up, so that a division by size can be done as a multiplication and a
+   * shift. The result can be one fractional unit too large for very wide windows, which is far
+   * below what survives the final rounding.
+   */
+  private static long reciprocal(int size) {
+    return ((1L << 32) + size - 1) / size;
+  }
+
+  /**
+   * Sums the values at positions [from, to] of a line of the given length, reading positions
+   * outside of the line from its nearest end. The values of the line start at offset and are
+   * step apart.
+   */
+  private static long windowSum(int[] in, int offset, int step, int length, int from, int to) {
+    long sum = 0;
+    if (from < 0) {
+      sum += (long) -from * in[offset];
+    }
+    if (to >= length) {
+      sum += (long) (to - length + 1) * in[offset + (length - 1) * step];
+    }
+    for (int i = Math.max(from, 0); i <= Math.min(to, length - 1); i += 1) {
+      sum += in[offset + i * step];
+    }
+    return sum;
+  }
+}
@@ -0,0 +1,127 @@
+package model.image;
+
+/**
+ * Lookup tables that apply a {@link ColorMatrix} to packed ARGB pixels with integer arithmetic.
+ * Since every channel is an 8-bit value, the product of each coefficient with every possible
+ * channel value is computed ahead of time as a fixed-point integer, and the offset of each row is
+ * folded into its red table. Transforming almost any pixel then takes nine table lookups, six
+ * additions and a shift.
+ *
+ * <p>Values are kept with 16 fractional bits, or fewer if a matrix has coefficients so large that
+ * the sum of a row could overflow an int. Each table entry is rounded to the nearest fixed-point
+ * value, so a sum is within one and a half units of its last bit of the exact value. A sum whose
+ * fraction is further than that from a whole number floors to the same value as the exact one,
+ * and the few sums close enough to a whole number to floor either way are computed again with
+ * the floating point formula. Every result is therefore exactly the truncated and clamped value
+ * of the formula in {@link ColorMatrix}, computed in the same order, and matches the original
+ * per-pixel color transformation.
+ */
+final class ColorLut {
+
+  private static final int MAX_FRACTION_BITS = 16;
+  private static final long MAX_ENTRY = Integer.MAX_VALUE / 4;
+
+  /**
+   * The distance, in units of the last fractional bit, from a whole number within which a sum is
+   * recomputed. It is more than the error of a sum of three rounded entries.
+   */
+  private static final int MARGIN = 2;
+
+  private final double[] matrix;
+  private final int[] tables;
+  private final int shift;
+  private final int mask;
+
+  /**
+   * Builds the lookup tables for the given matrix.
+   *
+   * @param matrix the matrix to be applied by these tables
+   */
+  ColorLut(ColorMatrix matrix) {
+    double largestRow = 0;
+    for (int row = 0; row < 3; row += 1) {
+      double bound = Math.abs(matrix.get(row, 3));
+      for (int column = 0; column < 3; column += 1) {
+        bound += Math.abs(matrix.get(row, column)) * 255;
+      }
+      largestRow = Math.max(largestRow, bound);
+    }
+    int bits = MAX_FRACTION_BITS;
+    while (bits > 0 && largestRow * (1 << bits) >= MAX_ENTRY) {
+      bits -= 1;
+    }
+    this.matrix = new double[12];
+    for (int row = 0; row < 3; row += 1) {
+      for (int column = 0; column < 4; column += 1) {
+        this.matrix[row * 4 + column] = matrix.get(row, column);
+      }
+    }
+    this.shift = bits;
+    this.tables = new int[9 * 256];
+    boolean clamped = false;
+    double scale = 1 << bits;
+    for (int row = 0; row < 3; row += 1) {
+      for (int column = 0; column < 3; column += 1) {
+        double coefficient = matrix.get(row, column);
+        double offset = column == 0 ? matrix.get(row, 3) : 0;
+        int table = (row * 3 + column) * 256;
+        for (int v = 0; v < 256; v += 1) {
+          long entry = Math.round((coefficient * v + offset) * scale);
+          clamped |= Math.abs(entry) > MAX_ENTRY;
+          tables[table + v] = (int) Math.max(-MAX_ENTRY, Math.min(MAX_ENTRY, entry));
+        }
+      }
+    }
+    // With too few fractional bits, or entries too large to hold, no sum can be trusted, and a
+    // mask of 0 sends every sum to the floating point formula.
+    this.mask = clamped ? 0 : (1 << bits) - 1;
+  }
+
+  /**
+   * Transforms a pixel with the floating point formula, in the same order as the original
+   * per-pixel color transformation.
+   */
+  private int exact(int argb) {
+    double[] m = matrix;
+    int red = (argb >> 16) & 0xFF;
+    int green = (argb >> 8) & 0xFF;
+    int blue = argb & 0xFF;
+    int result = argb & 0xFF000000;
+    for (int row = 0; row < 3; row += 1) {
+      int i = row * 4;
+      int value = (int) (m[i] * red + m[i + 1] * green + m[i + 2] * blue + m[i + 3]);
+      result |= Math.min(255, Math.max(0, value)) << (16 - row * 8);
+    }
+    return result;
+  }
+
+  /**
+   * Transforms length pixels of src starting at srcOffset, writing the results to dst starting at
+   * dstOffset. The alpha of each pixel is left unchanged. The source and destination may be the
+   * same array.
+   */
+  void apply(int[] src, int srcOffset, int[] dst, int dstOffset, int length) {
+    int[] t = tables;
+    int s = shift;
+    int m = mask;
+    for (int i = 0; i < length; i += 1) {
+      int argb = src[srcOffset + i];
+      int red = (argb >> 16) & 0xFF;
+      int green = (argb >> 8) & 0xFF;
+      int blue = argb & 0xFF;
+      int r = t[red] + t[256 + green] + t[512 + blue];
+      int g = t[768 + red] + t[1024 + green] + t[1280 + blue];
+      int b = t[1536 + red] + t[1792 + green] + t[2048 + blue];
+      // Each term is negative if its sum is too close to a whole number.
+      if (((((r + MARGIN) & m) - 2 * MARGIN) | (((g + MARGIN) & m) - 2 * MARGIN)
+          | (((b + MARGIN) & m) - 2 * MARGIN)) < 0) {
+        dst[dstOffset + i] = exact(argb);
+        continue;
+      }
+      dst[dstOffset + i] = (argb & 0xFF000000)
+          | (Math.min(255, Math.max(0, r >> s)) << 16)
+          | (Math.min(255, Math.max(0, g >> s)) << 8)
+          | Math.min(255, Math.max(0, b >> s));
+    }
+  }
+}
@@ -0,0 +1,129 @@
+package model.image;
+
+import java.util.Arrays;
+
+/**
+ * An immutable color transformation made of a 3x3 matrix and an optional offset. The new red,
+ * green and blue values of a pixel are computed as
+ * <pre>
+ *   red'   = m[0][0] * red + m[0][1] * green + m[0][2] * blue + m[0][3]
+ *   green' = m[1][0] * red + m[1][1] * green + m[1][2] * blue + m[1][3]
+ *   blue'  = m[2][0] * red + m[2][1] * green + m[2][2] * blue + m[2][3]
+ * </pre>
+ * truncated and clamped to [0, 255]. The alpha value of the pixel is left unchanged.
+ */
+public final class ColorMatrix {
+
+  /**
+   * The transformation used to convert an image to greyscale.
+   */
+  public static final ColorMatrix GREYSCALE = new ColorMatrix(new double[][]{
+      {0.2126, 0.7152, 0.0722},
+      {0.2126, 0.7152, 0.0722},
+      {0.2126, 0.7152, 0.0722}});
+
+  /**
+   * The transformation used to convert an image to sepia.
+   */
+  public static final ColorMatrix SEPIA = new ColorMatrix(new double[][]{
+      {.393, .769, .189},
+      {.349, .686, .168},
+      {.272, .534, .131}});
+
+  private final double[][] matrix;
+  private ColorLut lut;
+
+  /**
+   * Creates a new {@code ColorMatrix} from the given rows.
+   *
+   * @param matrix three rows of either three coefficients, or three coefficients followed by an
+   *               offset
+   * @throws IllegalArgumentException if matrix is null, does not have three rows, or its rows do
+   *                                  not all have three or all have four finite values
+   */
+  public ColorMatrix(double[][] matrix) throws IllegalArgumentException {
+    if (matrix == null || matrix.length != 3 || matrix[0] == null) {
+      throw new IllegalArgumentException("The color matrix must have 3 rows");
+    }
+    int columns = matrix[0].length;
+    if (columns != 3 && columns != 4) {
+      throw new IllegalArgumentException("The color matrix must have 3 or 4 columns");
+    }
+    this.matrix = new double[3][4];
+    for (int i = 0; i < 3; i += 1) {
+      if (matrix[i] == null || matrix[i].length != columns) {
+        throw new IllegalArgumentException("Every row of the color matrix must be the same length");
+      }
+      for (int j = 0; j < columns; j += 1) {
+        if (!Double.isFinite(matrix[i][j])) {
+          throw new IllegalArgumentException("Color matrix values must be finite");
+        }
+        this.matrix[i][j] = matrix[i][j];
+      }
+    }
+  }
+
+  /**
+   * Gets the value at the given position in this matrix. Column 3 holds the offset of each row.
+   *
+   * @param row    the row of the value, in [0, 2]
+   * @param column the column of the value, in [0, 3]
+   * @return the value at the given position
+   */
+  public double get(int row, int column) {
+    return matrix[row][column];
+  }
+
+  /**
+   * Composes this matrix with the given one into a single matrix that gives the same result as
+   * applying this matrix and then next, except that the intermediate values are neither truncated
+   * nor clamped.
+   *
+   * @param next the matrix applied after this one
+   * @return the composed matrix
+   * @throws IllegalArgumentException if next is null
+   */
+  public ColorMatrix then(ColorMatrix next) throws IllegalArgumentException {
+    if (next == null) {
+      throw new IllegalArgumentException("Color matrix cannot be null");
+    }
+    double[][] result = new double[3][4];
+    for (int i = 0; i < 3; i += 1) {
+      result[i][3] = next.matrix[i][3];
+      for (int k = 0; k < 3; k += 1) {
+        for (int j = 0; j < 4; j += 1) {
+          result[i][j] += next.matrix[i][k] * matrix[k][j];
+        }
+      }
+    }
+    return new ColorMatrix(result);
+  }
+
+  /**
+   * Gets the lookup tables for this matrix, building them the first time they are needed.
+   *
+   * @return the lookup tables for this matrix
+   */
+  ColorLut lut() {
+    if (lut == null) {
+      lut = new ColorLut(this);
+    }
+    return lut;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    } else if (other instanceof ColorMatrix) {
+      return Arrays.deepEquals(matrix, ((ColorMatrix) other).matrix);
+    } else {
+      return false;
+    }
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.deepHashCode(matrix);
+  }
+}
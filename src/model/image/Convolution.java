@@ -0,0 +1,242 @@
+package model.image;
+
+import java.util.Arrays;
+import model.pixel.ArgbUtil;
+
+/**
+ * Applies a {@link Kernel} to packed ARGB pixels. The red, green and blue channels are computed
+ * together in a single pass and the alpha of each pixel is left unchanged.
+ *
+ * <p>Large kernels are handed to {@link FftConvolution}, and kernels whose {@link SeparableKernel}
+ * decomposition needs less work per pixel are handed to {@link SeparableConvolution}. Otherwise
+ * the image is split into an interior region, where the whole kernel lies inside the image and no
+ * bounds checks are needed, and the edge region around it, where coordinates are mapped back into
+ * the image through a {@link BorderMode}. Bands of rows are filtered in parallel through
+ * {@link Parallel}, and when {@link Planes#ENABLED} is set the channels are first unpacked into
+ * planes so the interior can be filtered with vectorizable loops.
+ */
+final class Convolution {
+
+  /**
+   * Kernels whose cheapest direct method needs more multiply-adds per pixel than this are handed
+   * to {@link FftConvolution}, whose cost per pixel does not depend on the kernel. The value is
+   * the crossover measured with {@code benchmark.ConvolutionBenchmark} over repeated runs, where
+   * direct convolution was faster up to 11x13 kernels and the transform from 13x13.
+   */
+  static final int FFT_CROSSOVER = 144;
+
+  private Convolution() {
+  }
+
+  /**
+   * Convolves the given pixels with the given kernel, using separable passes or a Fourier
+   * transform when they are cheaper. The {@code image.convolution} system property can be set to
+   * {@code direct} or {@code fft} to force a method, which is used to measure the crossover.
+   *
+   * @param src    the packed ARGB values to be convolved
+   * @param width  the width of the image
+   * @param height the height of the image
+   * @param stride the distance in src between the start of one row and the next
+   * @param kernel the kernel to be applied
+   * @param border how pixels outside of the image are read
+   * @return a new tightly packed array holding the convolved image
+   */
+  static int[] convolve(int[] src, int width, int height, int stride, Kernel kernel,
+      BorderMode border) {
+    SeparableKernel separable = kernel.separable();
+    boolean useSeparable = separable.isCheaperThan(kernel);
+    int directCost = useSeparable ? separable.cost(kernel) : kernel.getWidth() * kernel.getHeight();
+    String method = System.getProperty("image.convolution", "auto");
+    if (method.equals("fft") || (method.equals("auto") && directCost > FFT_CROSSOVER)) {
+      return FftConvolution.convolve(src, width, height, stride, kernel, border);
+    }
+    if (useSeparable) {
+      return SeparableConvolution.convolve(src, width, height, stride, separable, border);
+    }
+    int[] dst = new int[width * height];
+    if (Planes.ENABLED) {
+      float[][] planes = Planes.unpack(src, width, height, stride);
+      Parallel.forEachBand(width, height, (rowStart, rowEnd) -> convolvePlanarRows(src, planes,
+          width, height, stride, kernel, border, dst, rowStart, rowEnd));
+    } else {
+      Parallel.forEachBand(width, height, (rowStart, rowEnd) ->
+          convolveRows(src, width, height, stride, kernel, border, dst, rowStart, rowEnd));
+    }
+    return dst;
+  }
+
+  /**
+   * Convolves the rows in [rowStart, rowEnd) of the given channel planes into dst with the full
+   * two-dimensional kernel. Each row is accumulated one kernel tap at a time across the whole
+   * interior span, which is a unit-stride multiply-add loop the JIT can vectorize. Taps are added
+   * in the same order as {@link #convolveRows}, so the result is identical.
+   */
+  static void convolvePlanarRows(int[] src, float[][] planes, int width, int height, int stride,
+      Kernel kernel, BorderMode border, int[] dst, int rowStart, int rowEnd) {
+    float[] weights = kernel.weights();
+    int kernelWidth = kernel.getWidth();
+    int kernelHeight = kernel.getHeight();
+    int radiusX = kernelWidth / 2;
+    int radiusY = kernelHeight / 2;
+    int interiorLeft = Math.min(radiusX, width);
+    int interiorRight = Math.max(interiorLeft, width - radiusX);
+    int interiorTop = Math.min(radiusY, height);
+    int interiorBottom = Math.max(interiorTop, height - radiusY);
+    float[][] sums = new float[3][width];
+
+    for (int y = rowStart; y < rowEnd; y += 1) {
+      boolean interiorRow = y >= interiorTop && y < interiorBottom;
+      int spanStart = interiorRow ? interiorLeft : width;
+      int spanEnd = interiorRow ? interiorRight : width;
+      for (int c = 0; c < 3; c += 1) {
+        float[] plane = planes[c];
+        float[] sum = sums[c];
+        Arrays.fill(sum, 0f);
+        for (int j = 0; j < kernelHeight && spanStart < spanEnd; j += 1) {
+          int row = (y + j - radiusY) * width - radiusX;
+          for (int i = 0; i < kernelWidth; i += 1) {
+            float weight = weights[j * kernelWidth + i];
+            int offset = row + i;
+            for (int x = spanStart; x < spanEnd; x += 1) {
+              sum[x] += plane[offset + x] * weight;
+            }
+          }
+        }
+      }
+      for (int x = 0; x < spanStart; x += 1) {
+        edgeSums(planes, width, height, kernel, border, x, y, sums);
+      }
+      for (int x = spanEnd; x < width; x += 1) {
+        edgeSums(planes, width, height, kernel, border, x, y, sums);
+      }
+      Planes.packRow(src, y * stride, sums[0], sums[1], sums[2], 0, dst, y * width, width);
+    }
+  }
+
+  private static void edgeSums(float[][] planes, int width, int height, Kernel kernel,
+      BorderMode border, int x, int y, float[][] sums) {
+    float[] weights = kernel.weights();
+    int kernelWidth = kernel.getWidth();
+    int kernelHeight = kernel.getHeight();
+    float red = 0;
+    float green = 0;
+    float blue = 0;
+    for (int j = 0; j < kernelHeight; j += 1) {
+      int srcY = border.map(y + j - kernelHeight / 2, height);
+      if (srcY < 0) {
+        continue;
+      }
+      for (int i = 0; i < kernelWidth; i += 1) {
+        int srcX = border.map(x + i - kernelWidth / 2, width);
+        if (srcX < 0) {
+          continue;
+        }
+        int index = srcY * width + srcX;
+        float weight = weights[j * kernelWidth + i];
+        red += planes[0][index] * weight;
+        green += planes[1][index] * weight;
+        blue += planes[2][index] * weight;
+      }
+    }
+    sums[0][x] = red;
+    sums[1][x] = green;
+    sums[2][x] = blue;
+  }
+
+  /**
+   * Convolves the rows in [rowStart, rowEnd) of the given pixels into dst with the full
+   * two-dimensional kernel.
+   */
+  static void convolveRows(int[] src, int width, int height, int stride, Kernel kernel,
+      BorderMode border, int[] dst, int rowStart, int rowEnd) {
+    int radiusX = kernel.getWidth() / 2;
+    int radiusY = kernel.getHeight() / 2;
+    int interiorLeft = Math.min(radiusX, width);
+    int interiorRight = Math.max(interiorLeft, width - radiusX);
+    int interiorTop = Math.min(radiusY, height);
+    int interiorBottom = Math.max(interiorTop, height - radiusY);
+
+    for (int y = rowStart; y < rowEnd; y += 1) {
+      if (y < interiorTop || y >= interiorBottom) {
+        for (int x = 0; x < width; x += 1) {
+          dst[y * width + x] = edgePixel(src, width, height, stride, kernel, border, x, y);
+        }
+      } else {
+        for (int x = 0; x < interiorLeft; x += 1) {
+          dst[y * width + x] = edgePixel(src, width, height, stride, kernel, border, x, y);
+        }
+        for (int x = interiorLeft; x < interiorRight; x += 1) {
+          dst[y * width + x] = interiorPixel(src, stride, kernel, x, y);
+        }
+        for (int x = interiorRight; x < width; x += 1) {
+          dst[y * width + x] = edgePixel(src, width, height, stride, kernel, border, x, y);
+        }
+      }
+    }
+  }
+
+  private static int interiorPixel(int[] src, int stride, Kernel kernel, int x, int y) {
+    float[] weights = kernel.weights();
+    int kernelWidth = kernel.getWidth();
+    int kernelHeight = kernel.getHeight();
+    int start = (y - kernelHeight / 2) * stride + x - kernelWidth / 2;
+    float red = 0;
+    float green = 0;
+    float blue = 0;
+    int w = 0;
+    for (int j = 0; j < kernelHeight; j += 1) {
+      int index = start + j * stride;
+      for (int i = 0; i < kernelWidth; i += 1) {
+        int argb = src[index + i];
+        float weight = weights[w++];
+        red += ((argb >> 16) & 0xFF) * weight;
+        green += ((argb >> 8) & 0xFF) * weight;
+        blue += (argb & 0xFF) * weight;
+      }
+    }
+    return ArgbUtil.pack(ArgbUtil.alpha(src[y * stride + x]),
+        toChannel(red), toChannel(green), toChannel(blue));
+  }
+
+  private static int edgePixel(int[] src, int width, int height, int stride, Kernel kernel,
+      BorderMode border, int x, int y) {
+    float[] weights = kernel.weights();
+    int kernelWidth = kernel.getWidth();
+    int kernelHeight = kernel.getHeight();
+    float red = 0;
+    float green = 0;
+    float blue = 0;
+    for (int j = 0; j < kernelHeight; j += 1) {
+      int srcY = border.map(y + j - kernelHeight / 2, height);
+      if (srcY < 0) {
+        continue;
+      }
+      for (int i = 0; i < kernelWidth; i += 1) {
+        int srcX = border.map(x + i - kernelWidth / 2, width);
+        if (srcX < 0) {
+          continue;
+        }
+        int argb = src[srcY * stride + srcX];
+        float weight = weights[j * kernelWidth + i];
+        red += ((argb >> 16) & 0xFF) * weight;
+        green += ((argb >> 8) & 0xFF) * weight;
+        blue += (argb & 0xFF) * weight;
+      }
+    }
+    return ArgbUtil.pack(ArgbUtil.alpha(src[y * stride + x]),
+        toChannel(red), toChannel(green), toChannel(blue));
+  }
+
+  /**
+   * Rounds an accumulated channel value to the nearest integer within [0, 255].
+   */
+  static int toChannel(float value) {
+    if (value <= 0) {
+      return 0;
+    } else if (value >= 255) {
+      return 255;
+    } else {
+      return (int) (value + 0.5f);
+    }
+  }
+}
@@ -0,0 +1,324 @@
+package model.image;
+
+import controller.FileType;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import model.pixel.Pixel;
+
+/**
+ * An {@link Image} whose pixels are only loaded when they are first used, such as a layer of a
+ * project file that has not been looked at yet. Its size is known up front, so it can be placed
+ * in a layered image and queried for its size without loading anything.
+ *
+ * <p>The loaded image is shared by every copy and is never changed. The first operation that
+ * changes a copy gives it a copy of the loaded image of its own, which it uses from then on.
+ * Failures to load are thrown as {@link UncheckedIOException}s by whatever operation needed the
+ * pixels, since most operations on an image cannot throw an {@link IOException}.
+ */
+public final class DeferredImage implements Image {
+
+  private final int width;
+  private final int height;
+  private final Source source;
+  private Image own;
+
+  /**
+   * Loads the pixels of a deferred image.
+   */
+  @FunctionalInterface
+  public interface Loader {
+
+    /**
+     * Loads the image.
+     *
+     * @return the image, which must have the size the deferred image was created with
+     * @throws IOException if the image cannot be loaded
+     */
+    Image load() throws IOException;
+  }
+
+  /**
+   * The loader of an image and the image once it has been loaded, shared by every copy.
+   */
+  private static final class Source {
+
+    private final Loader loader;
+    private Image value;
+
+    Source(Loader loader) {
+      this.loader = loader;
+    }
+
+    synchronized Image get(int width, int height) {
+      if (value == null) {
+        Image loaded;
+        try {
+          loaded = loader.load();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        if (loaded.getWidth() != width || loaded.getHeight() != height) {
+          throw new UncheckedIOException(new IOException("Loaded image is " + loaded.getWidth()
+              + "x" + loaded.getHeight() + " but should be " + width + "x" + height));
+        }
+        value = loaded;
+      }
+      return value;
+    }
+  }
+
+  /**
+   * Creates an image that is loaded by the given loader when its pixels are first used.
+   *
+   * @param width  the width of the image
+   * @param height the height of the image
+   * @param loader the loader of the image
+   * @throws IllegalArgumentException if width or height are negative or loader is null
+   */
+  public DeferredImage(int width, int height, Loader loader) throws IllegalArgumentException {
+    if (width < 0 || height < 0) {
+      throw new IllegalArgumentException("Invalid image dimensions");
+    }
+    if (loader == null) {
+      throw new IllegalArgumentException("Loader cannot be null");
+    }
+    this.width = width;
+    this.height = height;
+    this.source = new Source(loader);
+  }
+
+  private DeferredImage(int width, int height, Source source) {
+    this.width = width;
+    this.height = height;
+    this.source = source;
+  }
+
+  /**
+   * Gets the loader of this image if the image has not been changed, so that whoever knows how
+   * the loader works can reuse what it loads from without loading the image.
+   *
+   * @return the loader of this image, or null if the image has been changed
+   */
+  public Loader getLoader() {
+    return own == null ? source.loader : null;
+  }
+
+  /**
+   * Gets the pixels of this image for reading, loading them if needed.
+   */
+  private Image image() {
+    return own != null ? own : source.get(width, height);
+  }
+
+  /**
+   * Gets the pixels of this image for reading, throwing a failure to load them as it is for the
+   * operations that can.
+   */
+  private Image readable() throws IOException {
+    try {
+      return image();
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Gets the pixels of this image for changing, giving this image a copy of its own the first
+   * time.
+   */
+  private Image modify() {
+    if (own == null) {
+      own = source.get(width, height).copy();
+    }
+    return own;
+  }
+
+  @Override
+  public void blurImage() {
+    modify().blurImage();
+  }
+
+  @Override
+  public void blurImage(double sigma) throws IllegalArgumentException {
+    PackedImage.checkSigma(sigma, getWidth(), getHeight());
+    modify().blurImage(sigma);
+  }
+
+  @Override
+  public void sharpenImage() {
+    modify().sharpenImage();
+  }
+
+  @Override
+  public void convolve(Kernel kernel, BorderMode border) throws IllegalArgumentException {
+    modify().convolve(kernel, border);
+  }
+
+  @Override
+  public void toGreyscale() {
+    modify().toGreyscale();
+  }
+
+  @Override
+  public void toSepia() {
+    modify().toSepia();
+  }
+
+  @Override
+  public void applyColorMatrix(ColorMatrix matrix) throws IllegalArgumentException {
+    modify().applyColorMatrix(matrix);
+  }
+
+  @Override
+  public void applyColorMatrices(List<ColorMatrix> matrices) throws IllegalArgumentException {
+    modify().applyColorMatrices(matrices);
+  }
+
+  @Override
+  public void makeTransparent() {
+    modify().makeTransparent();
+  }
+
+  @Override
+  public void downscale(int newWidth, int newHeight) throws IllegalArgumentException {
+    modify().downscale(newWidth, newHeight);
+  }
+
+  @Override
+  public void resize(int newWidth, int newHeight, ResampleFilter filter)
+      throws IllegalArgumentException {
+    modify().resize(newWidth, newHeight, filter);
+  }
+
+  @Override
+  public void autoLevels() {
+    modify().autoLevels();
+  }
+
+  @Override
+  public void equalize() {
+    modify().equalize();
+  }
+
+  @Override
+  public void boxBlur(int radius) throws IllegalArgumentException {
+    modify().boxBlur(radius);
+  }
+
+  @Override
+  public void normalizeLocalMean(int radius) throws IllegalArgumentException {
+    modify().normalizeLocalMean(radius);
+  }
+
+  @Override
+  public void mosaic(int seeds) throws IllegalArgumentException {
+    modify().mosaic(seeds);
+  }
+
+  @Override
+  public void mosaic(int seeds, long randomSeed, SeedPlacement placement)
+      throws IllegalArgumentException {
+    modify().mosaic(seeds, randomSeed, placement);
+  }
+
+  @Override
+  public void setARGB(int x, int y, int argb) throws IllegalArgumentException {
+    modify().setARGB(x, y, argb);
+  }
+
+  @Override
+  public void setRegion(int[] src, int offset, int scan, int x, int y, int w, int h)
+      throws IllegalArgumentException {
+    modify().setRegion(src, offset, scan, x, y, w, h);
+  }
+
+  @Override
+  public PixelCursor cursor() {
+    return modify().cursor();
+  }
+
+  @Override
+  public int getWidth() {
+    return own != null ? own.getWidth() : width;
+  }
+
+  @Override
+  public int getHeight() {
+    return own != null ? own.getHeight() : height;
+  }
+
+  @Override
+  public IntegralImage integralImage() {
+    return image().integralImage();
+  }
+
+  @Override
+  public Histogram histogram() {
+    return image().histogram();
+  }
+
+  @Override
+  public void exportPPM(String fileName) throws IOException {
+    readable().exportPPM(fileName);
+  }
+
+  @Override
+  public void exportFile(String filename, FileType fileType) throws IOException {
+    readable().exportFile(filename, fileType);
+  }
+
+  @Override
+  public ArrayList<ArrayList<Pixel>> getPixels() {
+    return image().getPixels();
+  }
+
+  @Override
+  public Pixel getPixelAt(int x, int y) throws IllegalArgumentException {
+    return image().getPixelAt(x, y);
+  }
+
+  @Override
+  public int getARGB(int x, int y) throws IllegalArgumentException {
+    return image().getARGB(x, y);
+  }
+
+  @Override
+  public void getRegion(int[] dst, int offset, int scan, int x, int y, int w, int h)
+      throws IllegalArgumentException {
+    image().getRegion(dst, offset, scan, x, y, w, h);
+  }
+
+  @Override
+  public BufferedImage toBufferedImage() {
+    return image().toBufferedImage();
+  }
+
+  @Override
+  public BufferedImage toBufferedImage(BufferedImage reuse) {
+    return image().toBufferedImage(reuse);
+  }
+
+  @Override
+  public Image copy() {
+    return own != null ? own.copy() : new DeferredImage(width, height, source);
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    } else if (other instanceof DeferredImage) {
+      return image().equals(((DeferredImage) other).image());
+    } else {
+      return image().equals(other);
+    }
+  }
+
+  @Override
+  public int hashCode() {
+    return image().hashCode();
+  }
+}
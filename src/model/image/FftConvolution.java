@@ -0,0 +1,318 @@
+package model.image;
+
+import java.util.Arrays;
+
+/**
+ * Applies a {@link Kernel} to packed ARGB pixels by multiplying spectra computed with a fast
+ * Fourier transform, which costs the same per pixel for every kernel size. Direct convolution
+ * costs grow with the number of kernel weights, so this is only used for large kernels that do not
+ * separate into cheap passes.
+ *
+ * <p>The image is processed in tiles so memory stays bounded no matter how large the image is.
+ * Each tile reads the block of pixels its outputs depend on, including a halo the size of the
+ * kernel that is read through the {@link BorderMode}, into a transform the size of that block. The
+ * kernel's spectrum is computed once per call and shared by every tile. Because the block is
+ * exactly as large as the transform, the circular wrap of the transform only touches halo values
+ * that the tile's outputs never use, so every output is exact (this is the overlap-save method).
+ *
+ * <p>Since the kernel is real, two real channels can be transformed together as the real and
+ * imaginary parts of one complex signal and separated again after the inverse transform. Tiles are
+ * handled in pairs so that their six channels need only three transforms. Rows of tiles are
+ * processed in parallel through {@link Parallel}.
+ */
+final class FftConvolution {
+
+  private static final int MIN_FFT_SIZE = 16;
+  private static final int MAX_FFT_SIZE = 512;
+
+  private FftConvolution() {
+  }
+
+  /**
+   * Convolves the given pixels with the given kernel.
+   *
+   * @param src    the packed ARGB values to be convolved
+   * @param width  the width of the image
+   * @param height the height of the image
+   * @param stride the distance in src between the start of one row and the next
+   * @param kernel the kernel to be applied
+   * @param border how pixels outside of the image are read
+   * @return a new tightly packed array holding the convolved image
+   */
+  static int[] convolve(int[] src, int width, int height, int stride, Kernel kernel,
+      BorderMode border) {
+    int[] dst = new int[width * height];
+    if (width == 0 || height == 0) {
+      return dst;
+    }
+    int sizeX = transformSize(kernel.getWidth(), width);
+    int sizeY = transformSize(kernel.getHeight(), height);
+    Tiles tiles = new Tiles(src, width, height, stride, kernel, border, sizeX, sizeY, dst);
+    int tilesY = (height + tiles.tileHeight - 1) / tiles.tileHeight;
+    Parallel.forEachBand(width * tiles.tileHeight, tilesY, (rowStart, rowEnd) -> {
+      for (int ty = rowStart; ty < rowEnd; ty += 1) {
+        tiles.convolveRow(ty);
+      }
+    });
+    return dst;
+  }
+
+  /**
+   * Chooses the power of two transform length that does the least work per output along an axis
+   * of the given size. Each tile produces size - kernelSize + 1 outputs per axis, so small
+   * transforms waste most of their work on the halo while large ones cost more per value.
+   */
+  static int transformSize(int kernelSize, int imageSize) {
+    int needed = imageSize + kernelSize - 1;
+    int best = 0;
+    double bestCost = Double.MAX_VALUE;
+    int n = MIN_FFT_SIZE;
+    while (n < kernelSize) {
+      n *= 2;
+    }
+    for (; n <= Math.max(MAX_FFT_SIZE, 2 * kernelSize); n *= 2) {
+      int outputs = Math.min(n - kernelSize + 1, imageSize);
+      double cost = n * (Math.log(n) / Math.log(2) + 1) / outputs;
+      if (cost < bestCost) {
+        bestCost = cost;
+        best = n;
+      }
+      if (n >= needed) {
+        break;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * The state shared by every tile of one convolution.
+   */
+  private static final class Tiles {
+
+    private final int[] src;
+    private final int width;
+    private final int height;
+    private final int stride;
+    private final BorderMode border;
+    private final int radiusX;
+    private final int radiusY;
+    private final int sizeX;
+    private final int sizeY;
+    private final int tileWidth;
+    private final int tileHeight;
+    private final int[] dst;
+    private final Transform rows;
+    private final Transform columns;
+    private final double[] kernelRe;
+    private final double[] kernelIm;
+
+    Tiles(int[] src, int width, int height, int stride, Kernel kernel, BorderMode border,
+        int sizeX, int sizeY, int[] dst) {
+      this.src = src;
+      this.width = width;
+      this.height = height;
+      this.stride = stride;
+      this.border = border;
+      this.radiusX = kernel.getWidth() / 2;
+      this.radiusY = kernel.getHeight() / 2;
+      this.sizeX = sizeX;
+      this.sizeY = sizeY;
+      this.tileWidth = sizeX - kernel.getWidth() + 1;
+      this.tileHeight = sizeY - kernel.getHeight() + 1;
+      this.dst = dst;
+      this.rows = new Transform(sizeX);
+      this.columns = new Transform(sizeY);
+
+      // Correlating with the kernel is multiplying by the conjugate of its spectrum. The scale
+      // of the inverse transform is folded in here so it is only applied once.
+      double[] re = new double[sizeX * sizeY];
+      double[] im = new double[sizeX * sizeY];
+      float[] weights = kernel.weights();
+      for (int j = 0; j < kernel.getHeight(); j += 1) {
+        for (int i = 0; i < kernel.getWidth(); i += 1) {
+          re[j * sizeX + i] = weights[j * kernel.getWidth() + i];
+        }
+      }
+      forward(re, im);
+      double scale = 1.0 / (sizeX * sizeY);
+      for (int i = 0; i < re.length; i += 1) {
+        re[i] *= scale;
+        im[i] *= -scale;
+      }
+      this.kernelRe = re;
+      this.kernelIm = im;
+    }
+
+    /**
+     * Convolves every tile in the given row of tiles, two tiles at a time.
+     */
+    void convolveRow(int ty) {
+      int y0 = ty * tileHeight;
+      double[] re = new double[sizeX * sizeY];
+      double[] im = new double[sizeX * sizeY];
+      for (int x0 = 0; x0 < width; x0 += 2 * tileWidth) {
+        int x1 = x0 + tileWidth;
+        boolean pair = x1 < width;
+        load(re, x0, y0, 16);
+        load(im, x0, y0, 8);
+        filter(re, im);
+        store(re, x0, y0, 16);
+        store(im, x0, y0, 8);
+        if (pair) {
+          load(re, x1, y0, 16);
+          load(im, x1, y0, 8);
+          filter(re, im);
+          store(re, x1, y0, 16);
+          store(im, x1, y0, 8);
+        }
+        load(re, x0, y0, 0);
+        if (pair) {
+          load(im, x1, y0, 0);
+        } else {
+          Arrays.fill(im, 0);
+        }
+        filter(re, im);
+        store(re, x0, y0, 0);
+        if (pair) {
+          store(im, x1, y0, 0);
+        }
+      }
+    }
+
+    /**
+     * Reads the channel at the given shift from the block of pixels that the tile at (x0, y0)
+     * depends on into the given transform buffer.
+     */
+    private void load(double[] buffer, int x0, int y0, int shift) {
+      for (int j = 0; j < sizeY; j += 1) {
+        int srcY = border.map(y0 - radiusY + j, height);
+        int row = j * sizeX;
+        if (srcY < 0) {
+          Arrays.fill(buffer, row, row + sizeX, 0);
+          continue;
+        }
+        for (int i = 0; i < sizeX; i += 1) {
+          int srcX = border.map(x0 - radiusX + i, width);
+          buffer[row + i] = srcX < 0 ? 0 : (src[srcY * stride + srcX] >> shift) & 0xFF;
+        }
+      }
+    }
+
+    /**
+     * Writes the outputs of the tile at (x0, y0) from the given transform buffer into the channel
+     * at the given shift, keeping the alpha of each source pixel.
+     */
+    private void store(double[] buffer, int x0, int y0, int shift) {
+      int rowsOut = Math.min(tileHeight, height - y0);
+      int columnsOut = Math.min(tileWidth, width - x0);
+      for (int j = 0; j < rowsOut; j += 1) {
+        int y = y0 + j;
+        for (int i = 0; i < columnsOut; i += 1) {
+          int x = x0 + i;
+          int value = Convolution.toChannel((float) buffer[j * sizeX + i]) << shift;
+          int index = y * width + x;
+          int current = shift == 16 ? src[y * stride + x] & 0xFF000000 : dst[index];
+          dst[index] = (current & ~(0xFF << shift)) | value;
+        }
+      }
+    }
+
+    /**
+     * Transforms the given complex signal, multiplies it by the kernel's spectrum and transforms
+     * it back, leaving the correlation of the signal with the kernel in place.
+     */
+    private void filter(double[] re, double[] im) {
+      forward(re, im);
+      for (int i = 0; i < re.length; i += 1) {
+        double r = re[i] * kernelRe[i] - im[i] * kernelIm[i];
+        im[i] = re[i] * kernelIm[i] + im[i] * kernelRe[i];
+        re[i] = r;
+      }
+      inverse(re, im);
+    }
+
+    private void forward(double[] re, double[] im) {
+      for (int j = 0; j < sizeY; j += 1) {
+        rows.run(re, im, j * sizeX, 1, false);
+      }
+      for (int i = 0; i < sizeX; i += 1) {
+        columns.run(re, im, i, sizeX, false);
+      }
+    }
+
+    private void inverse(double[] re, double[] im) {
+      for (int i = 0; i < sizeX; i += 1) {
+        columns.run(re, im, i, sizeX, true);
+      }
+      for (int j = 0; j < sizeY; j += 1) {
+        rows.run(re, im, j * sizeX, 1, true);
+      }
+    }
+  }
+
+  /**
+   * An in-place radix-2 fast Fourier transform of a fixed power of two length. The inverse
+   * transform is not scaled.
+   */
+  private static final class Transform {
+
+    private final int size;
+    private final double[] cos;
+    private final double[] sin;
+    private final int[] reversed;
+
+    Transform(int size) {
+      this.size = size;
+      this.cos = new double[size / 2];
+      this.sin = new double[size / 2];
+      for (int k = 0; k < size / 2; k += 1) {
+        double angle = -2 * Math.PI * k / size;
+        cos[k] = Math.cos(angle);
+        sin[k] = Math.sin(angle);
+      }
+      this.reversed = new int[size];
+      int bits = Integer.numberOfTrailingZeros(size);
+      for (int i = 0; i < size; i += 1) {
+        reversed[i] = bits == 0 ? 0 : Integer.reverse(i) >>> (32 - bits);
+      }
+    }
+
+    /**
+     * Transforms the size values of re and im starting at offset and step apart.
+     */
+    void run(double[] re, double[] im, int offset, int step, boolean inverse) {
+      for (int i = 0; i < size; i += 1) {
+        int j = reversed[i];
+        if (i < j) {
+          int a = offset + i * step;
+          int b = offset + j * step;
+          double t = re[a];
+          re[a] = re[b];
+          re[b] = t;
+          t = im[a];
+          im[a] = im[b];
+          im[b] = t;
+        }
+      }
+      double sign = inverse ? -1 : 1;
+      for (int length = 2; length <= size; length *= 2) {
+        int half = length / 2;
+        int twiddleStep = size / length;
+        for (int start = 0; start < size; start += length) {
+          for (int k = 0; k < half; k += 1) {
+            double wr = cos[k * twiddleStep];
+            double wi = sign * sin[k * twiddleStep];
+            int a = offset + (start + k) * step;
+            int b = a + half * step;
+            double xr = re[b] * wr - im[b] * wi;
+            double xi = re[b] * wi + im[b] * wr;
+            re[b] = re[a] - xr;
+            im[b] = im[a] - xi;
+            re[a] += xr;
+            im[a] += xi;
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,239 @@
+package model.image;
+
+import model.pixel.ArgbUtil;
+
+/**
+ * The number of pixels of an image at each of the 256 values of its alpha, red, green and blue
+ * channels and of its luminance, as given by {@link ArgbUtil#luminance(int)}.
+ *
+ * <p>Histograms are counted in parallel, with each thread counting a band of rows into bins of its
+ * own that are added together at the end, so threads never contend for a bin. They are built
+ * through {@link Image#histogram()}, which keeps the histogram with the image's pixels until they
+ * change. A histogram never changes once it has been built.
+ */
+public final class Histogram {
+
+  /**
+   * The number of the alpha channel.
+   */
+  public static final int ALPHA = 0;
+  /**
+   * The number of the red channel.
+   */
+  public static final int RED = 1;
+  /**
+   * The number of the green channel.
+   */
+  public static final int GREEN = 2;
+  /**
+   * The number of the blue channel.
+   */
+  public static final int BLUE = 3;
+  /**
+   * The number of the luminance of each pixel, which is not stored as a channel of its own.
+   */
+  public static final int LUMINANCE = 4;
+
+  private static final int CHANNELS = 5;
+
+  /**
+   * The number of bins in a histogram, 256 for each channel.
+   */
+  static final int BINS = CHANNELS * 256;
+
+  private final int[] bins;
+  private final long total;
+
+  private Histogram(int[] bins, long total) {
+    this.bins = bins;
+    this.total = total;
+  }
+
+  /**
+   * Counts the histogram of the given pixels.
+   *
+   * @param src    the packed ARGB values of the image
+   * @param width  the width of the image
+   * @param height the height of the image
+   * @param stride the distance in src between the start of one row and the next
+   * @return the histogram of the image
+   */
+  static Histogram of(int[] src, int width, int height, int stride) {
+    int chunks = Math.max(1, Math.min(Parallel.getParallelism(), height));
+    int[][] partial = new int[chunks][];
+    int chunkCost = width * (height / chunks);
+    Parallel.forEachBand(chunkCost, chunks, (chunkStart, chunkEnd) -> {
+      for (int c = chunkStart; c < chunkEnd; c += 1) {
+        int[] counts = new int[BINS];
+        for (int y = c * height / chunks; y < (c + 1) * height / chunks; y += 1) {
+          count(src, y * stride, width, counts);
+        }
+        partial[c] = counts;
+      }
+    });
+    return merge(partial, (long) width * height);
+  }
+
+  /**
+   * Adds a run of pixels to a set of bins holding {@link #BINS} counts.
+   *
+   * @param src    the packed ARGB values of the pixels
+   * @param offset the index in src of the first pixel
+   * @param length the number of pixels to be counted
+   * @param counts the bins the pixels are counted into
+   */
+  static void count(int[] src, int offset, int length, int[] counts) {
+    for (int i = offset; i < offset + length; i += 1) {
+      int argb = src[i];
+      counts[argb >>> 24] += 1;
+      counts[256 + ((argb >> 16) & 0xFF)] += 1;
+      counts[512 + ((argb >> 8) & 0xFF)] += 1;
+      counts[768 + (argb & 0xFF)] += 1;
+      counts[1024 + ArgbUtil.luminance(argb)] += 1;
+    }
+  }
+
+  /**
+   * Adds together sets of bins counted separately into a histogram. The first set is reused.
+   *
+   * @param partial the sets of bins, at least one
+   * @param total   the number of pixels counted into all of them
+   * @return the histogram of every pixel counted
+   */
+  static Histogram merge(int[][] partial, long total) {
+    int[] bins = partial[0];
+    for (int c = 1; c < partial.length; c += 1) {
+      for (int i = 0; i < bins.length; i += 1) {
+        bins[i] += partial[c][i];
+      }
+    }
+    return new Histogram(bins, total);
+  }
+
+  private static void checkChannel(int channel) throws IllegalArgumentException {
+    if (channel < 0 || channel >= CHANNELS) {
+      throw new IllegalArgumentException("Invalid channel");
+    }
+  }
+
+  /**
+   * Gets the number of pixels counted.
+   *
+   * @return the number of pixels in the image
+   */
+  public long getTotal() {
+    return total;
+  }
+
+  /**
+   * Gets the number of pixels with the given value in the given channel.
+   *
+   * @param channel the channel, one of the channel numbers of this class
+   * @param value   the value to be counted
+   * @return the number of pixels with that value
+   * @throws IllegalArgumentException if channel is not a channel number of this class or value is
+   *                                  not between 0 and 255
+   */
+  public int getCount(int channel, int value) throws IllegalArgumentException {
+    checkChannel(channel);
+    if (value < 0 || value > 255) {
+      throw new IllegalArgumentException("Value must be between 0 and 255");
+    }
+    return bins[channel * 256 + value];
+  }
+
+  /**
+   * Gets the smallest value in the given channel such that more than the given fraction of the
+   * pixels are at or below it. A fraction of 0 gives the smallest value of any pixel and a
+   * fraction just below 1 the largest.
+   *
+   * @param channel  the channel, one of the channel numbers of this class
+   * @param fraction the fraction of the pixels, at least 0 and less than 1
+   * @return the value at that fraction, or 0 if the image has no pixels
+   * @throws IllegalArgumentException if channel is not a channel number of this class or fraction
+   *                                  is not at least 0 and less than 1
+   */
+  public int percentile(int channel, double fraction) throws IllegalArgumentException {
+    checkChannel(channel);
+    if (!(fraction >= 0 && fraction < 1)) {
+      throw new IllegalArgumentException("Fraction must be at least 0 and less than 1");
+    }
+    long limit = (long) Math.floor(fraction * total);
+    long count = 0;
+    for (int value = 0; value < 256; value += 1) {
+      count += bins[channel * 256 + value];
+      if (count > limit) {
+        return value;
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Gets the mean value of the given channel.
+   *
+   * @param channel the channel, one of the channel numbers of this class
+   * @return the mean value of the channel, or 0 if the image has no pixels
+   * @throws IllegalArgumentException if channel is not a channel number of this class
+   */
+  public double mean(int channel) throws IllegalArgumentException {
+    checkChannel(channel);
+    if (total == 0) {
+      return 0;
+    }
+    long sum = 0;
+    for (int value = 0; value < 256; value += 1) {
+      sum += (long) value * bins[channel * 256 + value];
+    }
+    return (double) sum / total;
+  }
+
+  /**
+   * Gets a table that stretches the values of the given channel linearly so that the given
+   * fraction of pixels at each end of its range become 0 and 255.
+   *
+   * @param channel the channel to be stretched
+   * @param clip    the fraction of pixels at each end that may be clipped
+   * @return a table mapping every value of the channel to its stretched value
+   */
+  int[] levelsTable(int channel, double clip) {
+    int[] table = new int[256];
+    int low = percentile(channel, clip);
+    int high = percentile(channel, 1 - clip - Math.ulp(1.0));
+    for (int value = 0; value < 256; value += 1) {
+      if (high <= low) {
+        table[value] = value;
+      } else {
+        int stretched = ((value - low) * 255 * 2 + (high - low)) / ((high - low) * 2);
+        table[value] = Math.max(0, Math.min(255, value < low ? 0 : stretched));
+      }
+    }
+    return table;
+  }
+
+  /**
+   * Gets a table that maps the values of the given channel through their cumulative distribution
+   * so that they are spread as evenly as possible over the whole range.
+   *
+   * @param channel the channel to be equalized
+   * @return a table mapping every value of the channel to its equalized value
+   */
+  int[] equalizeTable(int channel) {
+    int[] table = new int[256];
+    long first = 0;
+    for (int value = 0; value < 256 && first == 0; value += 1) {
+      first = bins[channel * 256 + value];
+    }
+    long count = 0;
+    for (int value = 0; value < 256; value += 1) {
+      count += bins[channel * 256 + value];
+      if (total == first) {
+        table[value] = value;
+      } else {
+        table[value] = (int) Math.max(0,
+            ((count - first) * 255 * 2 + (total - first)) / ((total - first) * 2));
+      }
+    }
+    return table;
+  }
+}
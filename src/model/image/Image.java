@@ -2,9 +2,9 @@ package model.image;
 
 import controller.FileType;
 import java.awt.image.BufferedImage;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
 import model.pixel.Pixel;
 
 /**
@@ -18,11 +18,32 @@ public interface Image {
    */
   void blurImage();
 
+  /**
+   * Blurs this image with a Gaussian of the given standard deviation. The cost per pixel does not
+   * depend on how large the blur is. Pixels beyond the edges of this image take the value of the
+   * nearest edge pixel.
+   *
+   * @param sigma the standard deviation of the blur in pixels
+   * @throws IllegalArgumentException if sigma is not positive and finite, or is larger than this
+   *                                  image is wide or high
+   */
+  void blurImage(double sigma) throws IllegalArgumentException;
+
   /**
    * Sharpens this image by a set amount.
    */
   void sharpenImage();
 
+  /**
+   * Convolves this image with the given kernel. The red, green and blue channels are filtered and
+   * the alpha channel is left unchanged.
+   *
+   * @param kernel the kernel to be applied
+   * @param border how pixels outside of this image are treated
+   * @throws IllegalArgumentException if kernel or border is null
+   */
+  void convolve(Kernel kernel, BorderMode border) throws IllegalArgumentException;
+
   /**
    * Transforms this image to greyscale.
    */
@@ -33,12 +54,32 @@ public interface Image {
    */
   void toSepia();
 
+  /**
+   * Applies the given color matrix to every pixel of this image. The alpha channel is left
+   * unchanged.
+   *
+   * @param matrix the color transformation to be applied
+   * @throws IllegalArgumentException if matrix is null
+   */
+  void applyColorMatrix(ColorMatrix matrix) throws IllegalArgumentException;
+
+  /**
+   * Applies the given color matrices to every pixel of this image in order, in a single pass. The
+   * result of each matrix is truncated and clamped before the next one is applied, so this gives
+   * the same result as calling {@link #applyColorMatrix(ColorMatrix)} with each matrix in turn.
+   *
+   * @param matrices the color transformations to be applied, in order
+   * @throws IllegalArgumentException if matrices is null or contains null
+   */
+  void applyColorMatrices(List<ColorMatrix> matrices) throws IllegalArgumentException;
+
   /**
    * Exports this image as a PPM with the given file name.
    *
    * @param fileName the name to be given to the exported file
+   * @throws IOException if the file cannot be written
    */
-  void exportPPM(String fileName) throws FileNotFoundException;
+  void exportPPM(String fileName) throws IOException;
 
   /**
    * Exports this {@code TransparentImage} to the given file with the given {@link FileType}.
@@ -64,6 +105,90 @@ public interface Image {
    */
   Pixel getPixelAt(int x, int y) throws IllegalArgumentException;
 
+  /**
+   * Gets the width of this image in pixels.
+   *
+   * @return the width of this image
+   */
+  int getWidth();
+
+  /**
+   * Gets the height of this image in pixels.
+   *
+   * @return the height of this image
+   */
+  int getHeight();
+
+  /**
+   * Gets the pixel at the specified coordinates in this image packed into a single ARGB value.
+   * Unlike {@link #getPixelAt(int, int)}, this does not allocate a new object.
+   *
+   * @param x the x-coordinate of the pixel to be returned
+   * @param y the y-coordinate of the pixel to be returned
+   * @return the packed ARGB value of the specified pixel
+   * @throws IllegalArgumentException if the coordinates are outside of this image
+   */
+  int getARGB(int x, int y) throws IllegalArgumentException;
+
+  /**
+   * Sets the pixel at the specified coordinates in this image to the given packed ARGB value.
+   *
+   * @param x    the x-coordinate of the pixel to be set
+   * @param y    the y-coordinate of the pixel to be set
+   * @param argb the packed ARGB value to be set
+   * @throws IllegalArgumentException if the coordinates are outside of this image
+   */
+  void setARGB(int x, int y, int argb) throws IllegalArgumentException;
+
+  /**
+   * Copies a rectangular region of this image into the given array as packed ARGB values. The
+   * pixel at (x + i, y + j) is written to {@code dst[offset + j * scan + i]}.
+   *
+   * @param dst    the array to be written to
+   * @param offset the index in dst of the first pixel
+   * @param scan   the distance in dst between the start of one row and the next
+   * @param x      the x-coordinate of the top left corner of the region
+   * @param y      the y-coordinate of the top left corner of the region
+   * @param w      the width of the region
+   * @param h      the height of the region
+   * @throws IllegalArgumentException if the region is not within this image or does not fit in
+   *                                  dst
+   */
+  void getRegion(int[] dst, int offset, int scan, int x, int y, int w, int h)
+      throws IllegalArgumentException;
+
+  /**
+   * Copies the given packed ARGB values into a rectangular region of this image. The pixel at
+   * (x + i, y + j) is read from {@code src[offset + j * scan + i]}.
+   *
+   * @param src    the array to be read from
+   * @param offset the index in src of the first pixel
+   * @param scan   the distance in src between the start of one row and the next
+   * @param x      the x-coordinate of the top left corner of the region
+   * @param y      the y-coordinate of the top left corner of the region
+   * @param w      the width of the region
+   * @param h      the height of the region
+   * @throws IllegalArgumentException if the region is not within this image or does not fit in
+   *                                  src
+   */
+  void setRegion(int[] src, int offset, int scan, int x, int y, int w, int h)
+      throws IllegalArgumentException;
+
+  /**
+   * Creates a {@link PixelCursor} that scans over every pixel in this image row by row.
+   *
+   * @return a cursor positioned before the first pixel of this image
+   */
+  PixelCursor cursor();
+
+  /**
+   * Creates a copy of this image. The copy shares this image's pixel storage until either image
+   * is modified, so copying is cheap and reading from a copy never duplicates pixels.
+   *
+   * @return a copy of this image
+   */
+  Image copy();
+
   /**
    * Makes all of the pixels in this image completely transparent.
    */
@@ -76,6 +201,16 @@ public interface Image {
    */
   BufferedImage toBufferedImage();
 
+  /**
+   * Converts this image to a {@code BufferedImage}, writing its pixels into the given image
+   * instead of a new one if it is an ARGB image of the same size.
+   *
+   * @param reuse an image to be overwritten, or null
+   * @return reuse if it was overwritten, otherwise a new {@code BufferedImage} corresponding to
+   *         this image
+   */
+  BufferedImage toBufferedImage(BufferedImage reuse);
+
   /**
    * Downsizes this image to the given width and height.
    *
@@ -86,6 +221,66 @@ public interface Image {
    */
   void downscale(int width, int height) throws IllegalArgumentException;
 
+  /**
+   * Resizes this image to the given width and height, which can each be larger or smaller than
+   * they are now, using the given filter.
+   *
+   * @param width  the width of the resized image
+   * @param height the height of the resized image
+   * @param filter the filter used to compute the resized pixels
+   * @throws IllegalArgumentException if width or height are less than 1, or filter is null
+   */
+  void resize(int width, int height, ResampleFilter filter) throws IllegalArgumentException;
+
+  /**
+   * Gets the summed-area table of this image, which gives the sum or mean of any rectangle of
+   * pixels in constant time. The table is kept until this image changes, so asking for it again
+   * is free.
+   *
+   * @return the summed-area table of this image
+   */
+  IntegralImage integralImage();
+
+  /**
+   * Gets the histogram of this image's channels and luminance. The histogram is kept until this
+   * image changes, so asking for it again is free.
+   *
+   * @return the histogram of this image
+   */
+  Histogram histogram();
+
+  /**
+   * Stretches the red, green and blue values of this image separately so that each covers the
+   * whole range from 0 to 255, ignoring a tiny fraction of outlying pixels at each end. Alpha
+   * values are unchanged.
+   */
+  void autoLevels();
+
+  /**
+   * Remaps the red, green and blue values of this image separately so that each is spread as
+   * evenly as possible over the whole range from 0 to 255. Alpha values are unchanged.
+   */
+  void equalize();
+
+  /**
+   * Blurs this image by replacing every pixel with the mean of the square of pixels around it
+   * that lie within the image. This takes the same time however large the radius is.
+   *
+   * @param radius how far the square reaches from each pixel in each direction
+   * @throws IllegalArgumentException if radius is negative
+   */
+  void boxBlur(int radius) throws IllegalArgumentException;
+
+  /**
+   * Subtracts from every pixel the mean of the square of pixels around it and adds mid-grey, which
+   * evens out gradual changes in brightness across this image while keeping local detail. Alpha
+   * values are unchanged.
+   *
+   * @param radius how far the square reaches from each pixel in each direction
+   * @throws IllegalArgumentException if radius is negative
+   */
+  void normalizeLocalMean(int radius) throws IllegalArgumentException;
+
   /**
    * Applies a mosaic filter to this image using the given number of seeds.
    *
@@ -94,4 +289,18 @@ public interface Image {
    *                                  number of pixels in this image
    */
   void mosaic(int seeds) throws IllegalArgumentException;
+
+  /**
+   * Applies a mosaic filter to this image using the given number of seeds, placed with the given
+   * strategy from a random number generator started with the given seed. The same arguments
+   * always give the same result.
+   *
+   * @param seeds      the number of seeds to use to the mosaic computation
+   * @param randomSeed the seed of the random number generator that places the seeds
+   * @param placement  how the seeds are placed in this image
+   * @throws IllegalArgumentException if the number of seeds is less than 1 or greater than the
+   *                                  number of pixels in this image, or placement is null
+   */
+  void mosaic(int seeds, long randomSeed, SeedPlacement placement)
+      throws IllegalArgumentException;
 }
@@ -0,0 +1,113 @@
+package model.image;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A mipmap pyramid over an image, used to make smaller versions of the image without starting
+ * from full resolution each time. Level 0 is the image itself and every further level is half the
+ * size of the one before it, computed from it with an area filter. A smaller version of the image
+ * is resized from the smallest level that is still at least as large as it, so it costs about the
+ * same however much smaller than the image it is.
+ *
+ * <p>Levels are computed when first needed and kept in a cache shared by every pyramid, which is
+ * bounded in memory, so levels that have not been used in a while may be computed again. A
+ * pyramid does not notice changes to its image, so whoever owns the image must call
+ * {@link #invalidate()} and stop using the pyramid once the image changes.
+ */
+public final class ImagePyramid {
+
+  private static final AtomicLong nextId = new AtomicLong();
+
+  private final long id;
+  private final Image base;
+
+  /**
+   * Creates a pyramid over the given image. No levels are computed until they are needed.
+   *
+   * @param base the image at the bottom of the pyramid, which must not be changed afterwards
+   * @throws IllegalArgumentException if base is null
+   */
+  public ImagePyramid(Image base) throws IllegalArgumentException {
+    if (base == null) {
+      throw new IllegalArgumentException("Image cannot be null");
+    }
+    this.id = nextId.getAndIncrement();
+    this.base = base;
+  }
+
+  /**
+   * Sets the most memory that the cached levels of all pyramids together may use.
+   *
+   * @param bytes the budget in bytes
+   * @throws IllegalArgumentException if bytes is negative
+   */
+  public static void setCacheCapacity(long bytes) throws IllegalArgumentException {
+    if (bytes < 0) {
+      throw new IllegalArgumentException("Cache capacity cannot be negative");
+    }
+    PyramidCache.setCapacity(bytes);
+  }
+
+  /**
+   * Gets a copy of the image resized to the given width and height with the given filter,
+   * starting from the smallest level of this pyramid that is at least as large.
+   *
+   * @param width  the width of the resized image
+   * @param height the height of the resized image
+   * @param filter the filter used for the final resize from a level
+   * @return a new image of the given size
+   * @throws IllegalArgumentException if width or height are less than 1, or filter is null
+   */
+  public Image resize(int width, int height, ResampleFilter filter)
+      throws IllegalArgumentException {
+    if (width < 1 || height < 1) {
+      throw new IllegalArgumentException("Width and height must be positive");
+    }
+    if (filter == null) {
+      throw new IllegalArgumentException("Resample filter cannot be null");
+    }
+    int level = 0;
+    while (levelWidth(level + 1) >= width && levelHeight(level + 1) >= height
+        && (levelWidth(level + 1) < levelWidth(level)
+        || levelHeight(level + 1) < levelHeight(level))) {
+      level += 1;
+    }
+    Image image = level(level).copy();
+    if (image.getWidth() != width || image.getHeight() != height) {
+      image.resize(width, height, filter);
+    }
+    return image;
+  }
+
+  /**
+   * Removes the levels of this pyramid from the cache. This should be called once the image of
+   * this pyramid changes.
+   */
+  public void invalidate() {
+    PyramidCache.removeAll(id);
+  }
+
+  private int levelWidth(int level) {
+    return Math.max(1, base.getWidth() >> Math.min(level, 31));
+  }
+
+  private int levelHeight(int level) {
+    return Math.max(1, base.getHeight() >> Math.min(level, 31));
+  }
+
+  /**
+   * Gets the image of the given level, computing it and any missing levels below it first.
+   */
+  private Image level(int level) {
+    if (level == 0) {
+      return base;
+    }
+    Image image = PyramidCache.get(id, level);
+    if (image == null) {
+      image = level(level - 1).copy();
+      image.resize(levelWidth(level), levelHeight(level), ResampleFilter.AREA);
+      PyramidCache.put(id, level, image);
+    }
+    return image;
+  }
+}
@@ -0,0 +1,186 @@
+package model.image;
+
+import model.pixel.ArgbUtil;
+
+/**
+ * A summed-area table over the four channels of an image, which gives the sum or mean of any
+ * rectangle of pixels in constant time. The entry at (x, y) holds the sum of every pixel above and
+ * to the left of it, so the sum of a rectangle is found from the entries at its four corners.
+ *
+ * <p>The table has one more row and column than the image, with the first of each holding zeros,
+ * and the four channels of each entry are stored next to each other. Entries are kept as ints,
+ * which wrap around for large images but still give exact sums for any rectangle of up to 2^32 /
+ * 255 pixels since only differences are used; tables over images larger than that are kept as
+ * longs instead.
+ *
+ * <p>The table is built with a prefix sum along every row and then along every column, each run in
+ * parallel through {@link Parallel}. Tables are built through {@link Image#integralImage()}, which
+ * keeps the table with the image's pixels until they change.
+ */
+public final class IntegralImage {
+
+  private static final long MAX_INT_PIXELS = 0xFFFFFFFFL / 255;
+
+  private final int width;
+  private final int height;
+  private final int[] sums;
+  private final long[] wideSums;
+
+  private IntegralImage(int width, int height, int[] sums, long[] wideSums) {
+    this.width = width;
+    this.height = height;
+    this.sums = sums;
+    this.wideSums = wideSums;
+  }
+
+  /**
+   * Builds the table for the given pixels.
+   *
+   * @param src    the packed ARGB values of the image
+   * @param width  the width of the image
+   * @param height the height of the image
+   * @param stride the distance in src between the start of one row and the next
+   * @return the summed-area table of the image
+   */
+  static IntegralImage of(int[] src, int width, int height, int stride) {
+    int scan = (width + 1) * 4;
+    if ((long) width * height <= MAX_INT_PIXELS) {
+      int[] sums = new int[scan * (height + 1)];
+      Parallel.forEachBand(width, height, (rowStart, rowEnd) -> {
+        for (int y = rowStart; y < rowEnd; y += 1) {
+          int row = (y + 1) * scan;
+          for (int x = 0; x < width; x += 1) {
+            int argb = src[y * stride + x];
+            int i = row + (x + 1) * 4;
+            sums[i] = sums[i - 4] + (argb >>> 24);
+            sums[i + 1] = sums[i - 3] + ((argb >> 16) & 0xFF);
+            sums[i + 2] = sums[i - 2] + ((argb >> 8) & 0xFF);
+            sums[i + 3] = sums[i - 1] + (argb & 0xFF);
+          }
+        }
+      });
+      // Columns are independent, so bands of columns are summed down the image in parallel.
+      Parallel.forEachBand(height, scan, (columnStart, columnEnd) -> {
+        for (int y = 2; y <= height; y += 1) {
+          for (int i = columnStart; i < columnEnd; i += 1) {
+            sums[y * scan + i] += sums[(y - 1) * scan + i];
+          }
+        }
+      });
+      return new IntegralImage(width, height, sums, null);
+    }
+    long[] sums = new long[scan * (height + 1)];
+    Parallel.forEachBand(width, height, (rowStart, rowEnd) -> {
+      for (int y = rowStart; y < rowEnd; y += 1) {
+        int row = (y + 1) * scan;
+        for (int x = 0; x < width; x += 1) {
+          int argb = src[y * stride + x];
+          int i = row + (x + 1) * 4;
+          sums[i] = sums[i - 4] + (argb >>> 24);
+          sums[i + 1] = sums[i - 3] + ((argb >> 16) & 0xFF);
+          sums[i + 2] = sums[i - 2] + ((argb >> 8) & 0xFF);
+          sums[i + 3] = sums[i - 1] + (argb & 0xFF);
+        }
+      }
+    });
+    Parallel.forEachBand(height, scan, (columnStart, columnEnd) -> {
+      for (int y = 2; y <= height; y += 1) {
+        for (int i = columnStart; i < columnEnd; i += 1) {
+          sums[y * scan + i] += sums[(y - 1) * scan + i];
+        }
+      }
+    });
+    return new IntegralImage(width, height, null, sums);
+  }
+
+  /**
+   * Gets the width of the image this table was built from.
+   *
+   * @return the width of the image
+   */
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * Gets the height of the image this table was built from.
+   *
+   * @return the height of the image
+   */
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * Gets the sum of one channel over a rectangle of pixels.
+   *
+   * @param channel the channel to be summed, where 0 is alpha, 1 is red, 2 is green and 3 is blue
+   * @param x       the x-coordinate of the top left pixel of the rectangle
+   * @param y       the y-coordinate of the top left pixel of the rectangle
+   * @param w       the width of the rectangle
+   * @param h       the height of the rectangle
+   * @return the sum of the channel over the rectangle
+   * @throws IllegalArgumentException if channel is not between 0 and 3, or the rectangle does not
+   *                                  lie within the image
+   */
+  public long regionSum(int channel, int x, int y, int w, int h) throws IllegalArgumentException {
+    if (channel < 0 || channel > 3) {
+      throw new IllegalArgumentException("Invalid channel");
+    }
+    checkRegion(x, y, w, h);
+    return sum(channel, x, y, x + w, y + h);
+  }
+
+  /**
+   * Gets the mean color of a rectangle of pixels, with each channel rounded to the nearest value.
+   *
+   * @param x the x-coordinate of the top left pixel of the rectangle
+   * @param y the y-coordinate of the top left pixel of the rectangle
+   * @param w the width of the rectangle
+   * @param h the height of the rectangle
+   * @return the mean of the rectangle as a packed ARGB value
+   * @throws IllegalArgumentException if the rectangle is empty or does not lie within the image
+   */
+  public int regionMean(int x, int y, int w, int h) throws IllegalArgumentException {
+    checkRegion(x, y, w, h);
+    if (w == 0 || h == 0) {
+      throw new IllegalArgumentException("Region cannot be empty");
+    }
+    return mean(x, y, x + w, y + h);
+  }
+
+  private void checkRegion(int x, int y, int w, int h) throws IllegalArgumentException {
+    if (x < 0 || y < 0 || w < 0 || h < 0 || x > width - w || y > height - h) {
+      throw new IllegalArgumentException("Invalid region");
+    }
+  }
+
+  /**
+   * Gets the sum of one channel over the pixels in [x0, x1) by [y0, y1) without checking the
+   * bounds.
+   */
+  long sum(int channel, int x0, int y0, int x1, int y1) {
+    int scan = (width + 1) * 4;
+    int a = y0 * scan + x0 * 4 + channel;
+    int b = y0 * scan + x1 * 4 + channel;
+    int c = y1 * scan + x0 * 4 + channel;
+    int d = y1 * scan + x1 * 4 + channel;
+    if (sums != null) {
+      return Integer.toUnsignedLong(sums[d] - sums[b] - sums[c] + sums[a]);
+    }
+    return wideSums[d] - wideSums[b] - wideSums[c] + wideSums[a];
+  }
+
+  /**
+   * Gets the mean color of the pixels in [x0, x1) by [y0, y1) as a packed ARGB value without
+   * checking the bounds.
+   */
+  int mean(int x0, int y0, int x1, int y1) {
+    long area = (long) (x1 - x0) * (y1 - y0);
+    long half = area / 2;
+    return ArgbUtil.pack((int) ((sum(0, x0, y0, x1, y1) + half) / area),
+        (int) ((sum(1, x0, y0, x1, y1) + half) / area),
+        (int) ((sum(2, x0, y0, x1, y1) + half) / area),
+        (int) ((sum(3, x0, y0, x1, y1) + half) / area));
+  }
+}
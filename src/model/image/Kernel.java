@@ -0,0 +1,154 @@
+package model.image;
+
+import java.util.Arrays;
+
+/**
+ * An immutable convolution kernel with an odd width and height. The weight at column x and row y
+ * is applied to the pixel offset by (x - width / 2, y - height / 2) from the pixel being computed.
+ */
+public final class Kernel {
+
+  /**
+   * The 3x3 kernel used to blur an image.
+   */
+  public static final Kernel BLUR = new Kernel(3, 3, new float[]{
+      .0625f, .125f, .0625f,
+      .125f, .25f, .125f,
+      .0625f, .125f, .0625f});
+
+  /**
+   * The 5x5 kernel used to sharpen an image.
+   */
+  public static final Kernel SHARPEN = new Kernel(5, 5, new float[]{
+      -.125f, -.125f, -.125f, -.125f, -.125f,
+      -.125f, .25f, .25f, .25f, -.125f,
+      -.125f, .25f, 1f, .25f, -.125f,
+      -.125f, .25f, .25f, .25f, -.125f,
+      -.125f, -.125f, -.125f, -.125f, -.125f});
+
+  private final int width;
+  private final int height;
+  private final float[] weights;
+  private SeparableKernel separable;
+
+  /**
+   * Creates a new {@code Kernel} with the given weights.
+   *
+   * @param width   the width of this kernel
+   * @param height  the height of this kernel
+   * @param weights the weights of this kernel in row-major order
+   * @throws IllegalArgumentException if width or height are not positive and odd, or if the
+   *                                  number of weights does not match the dimensions
+   */
+  public Kernel(int width, int height, float[] weights) throws IllegalArgumentException {
+    if (width < 1 || height < 1 || width % 2 == 0 || height % 2 == 0) {
+      throw new IllegalArgumentException("Kernel dimensions must be positive and odd");
+    }
+    if (weights == null || weights.length != width * height) {
+      throw new IllegalArgumentException("Kernel must have exactly width * height weights");
+    }
+    this.width = width;
+    this.height = height;
+    this.weights = weights.clone();
+  }
+
+  /**
+   * Gets the width of this kernel.
+   *
+   * @return the width of this kernel
+   */
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * Gets the height of this kernel.
+   *
+   * @return the height of this kernel
+   */
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * Gets the weight at the given position in this kernel.
+   *
+   * @param x the column of the weight
+   * @param y the row of the weight
+   * @return the weight at (x, y)
+   */
+  public float getWeight(int x, int y) {
+    return weights[y * width + x];
+  }
+
+  /**
+   * Gets a copy of the weights of this kernel in row-major order.
+   *
+   * @return the weights of this kernel
+   */
+  public float[] getWeights() {
+    return weights.clone();
+  }
+
+  /**
+   * Creates a normalized Gaussian kernel with the given standard deviation, reaching three
+   * standard deviations out from its center.
+   *
+   * @param sigma the standard deviation of the kernel in pixels
+   * @return the Gaussian kernel
+   * @throws IllegalArgumentException if sigma is not positive and finite
+   */
+  public static Kernel gaussian(double sigma) throws IllegalArgumentException {
+    if (!(sigma > 0) || Double.isInfinite(sigma)) {
+      throw new IllegalArgumentException("Sigma must be positive and finite");
+    }
+    int radius = (int) Math.ceil(3 * sigma);
+    int size = 2 * radius + 1;
+    double[] line = new double[size];
+    double total = 0;
+    for (int i = 0; i < size; i += 1) {
+      line[i] = Math.exp(-(i - radius) * (i - radius) / (2 * sigma * sigma));
+      total += line[i];
+    }
+    float[] weights = new float[size * size];
+    for (int y = 0; y < size; y += 1) {
+      for (int x = 0; x < size; x += 1) {
+        weights[y * size + x] = (float) (line[x] * line[y] / (total * total));
+      }
+    }
+    return new Kernel(size, size, weights);
+  }
+
+  float[] weights() {
+    return weights;
+  }
+
+  /**
+   * Gets the separable decomposition of this kernel, computing it the first time it is needed.
+   *
+   * @return the separable decomposition of this kernel
+   */
+  SeparableKernel separable() {
+    if (separable == null) {
+      separable = SeparableKernel.decompose(this);
+    }
+    return separable;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    } else if (other instanceof Kernel) {
+      Kernel o = (Kernel) other;
+      return width == o.width && height == o.height && Arrays.equals(weights, o.weights);
+    } else {
+      return false;
+    }
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * (31 * width + height) + Arrays.hashCode(weights);
+  }
+}
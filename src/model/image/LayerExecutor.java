@@ -0,0 +1,153 @@
+package model.image;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Reads or writes the layers of a layered image concurrently. The layers of an image are
+ * independent of each other, so each is encoded or decoded on a thread of its own, with at most a
+ * set number of layers in progress at once. Every layer is attempted even if others fail, and the
+ * failures are reported together once all of them are done.
+ *
+ * <p>The number of layers in progress at once bounds the memory used by intermediate copies of
+ * layers, such as the decoded image of a file, and defaults to the number of available processors.
+ * It can be changed with the {@code image.maxLayersInFlight} system property or
+ * {@link #setMaxLayersInFlight(int)}.
+ */
+public final class LayerExecutor {
+
+  private static volatile int maxLayersInFlight = Math.max(1,
+      Integer.getInteger("image.maxLayersInFlight", Runtime.getRuntime().availableProcessors()));
+
+  private LayerExecutor() {
+  }
+
+  /**
+   * Represents the reading or writing of a single layer.
+   *
+   * @param <S> the type of the description of the layer
+   * @param <T> the type of the result
+   */
+  @FunctionalInterface
+  public interface LayerTask<S, T> {
+
+    /**
+     * Reads or writes the given layer.
+     *
+     * @param layer the layer to be read or written
+     * @return the result for the layer
+     * @throws IOException if the layer cannot be read or written
+     */
+    T run(S layer) throws IOException;
+  }
+
+  /**
+   * Sets the largest number of layers read or written at once.
+   *
+   * @param layers the number of layers
+   * @throws IllegalArgumentException if layers is less than 1
+   */
+  public static void setMaxLayersInFlight(int layers) throws IllegalArgumentException {
+    if (layers < 1) {
+      throw new IllegalArgumentException("Number of layers must be at least 1");
+    }
+    maxLayersInFlight = layers;
+  }
+
+  /**
+   * Gets the largest number of layers read or written at once.
+   *
+   * @return the number of layers
+   */
+  public static int getMaxLayersInFlight() {
+    return maxLayersInFlight;
+  }
+
+  /**
+   * Runs the given task on every layer and waits for all of them to finish.
+   *
+   * @param layers the layers to be read or written
+   * @param task   the work to be done on each layer
+   * @param action what the task does, used to describe failures, such as "export"
+   * @param <S>    the type of the description of each layer
+   * @param <T>    the type of the result for each layer
+   * @return the result for each layer, in the same order as layers
+   * @throws IOException if the task fails for any layer, with the failure of every layer that
+   *                     failed suppressed in it
+   */
+  public static <S, T> List<T> forEachLayer(List<S> layers, LayerTask<S, T> task, String action)
+      throws IOException {
+    List<T> results = new ArrayList<>(layers.size());
+    if (layers.isEmpty()) {
+      return results;
+    }
+    int threads = Math.min(maxLayersInFlight, layers.size());
+    if (threads == 1) {
+      List<Throwable> failures = new ArrayList<>();
+      for (int i = 0; i < layers.size(); i += 1) {
+        try {
+          results.add(task.run(layers.get(i)));
+        } catch (IOException | RuntimeException e) {
+          results.add(null);
+          failures.add(describe(i, e));
+        }
+      }
+      check(failures, layers.size(), action);
+      return results;
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+      Thread thread = new Thread(runnable, "layer-io");
+      thread.setDaemon(true);
+      return thread;
+    });
+    try {
+      List<Future<T>> futures = new ArrayList<>(layers.size());
+      for (S layer : layers) {
+        futures.add(executor.submit(() -> task.run(layer)));
+      }
+      List<Throwable> failures = new ArrayList<>();
+      for (int i = 0; i < futures.size(); i += 1) {
+        try {
+          results.add(futures.get(i).get());
+        } catch (ExecutionException e) {
+          results.add(null);
+          failures.add(describe(i, e.getCause()));
+        }
+      }
+      check(failures, layers.size(), action);
+      return results;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for layers to " + action);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static Throwable describe(int index, Throwable failure) {
+    if (failure instanceof Error) {
+      throw (Error) failure;
+    }
+    return new IOException("Layer " + (index + 1) + ": " + failure.getMessage(), failure);
+  }
+
+  private static void check(List<Throwable> failures, int total, String action)
+      throws IOException {
+    if (failures.isEmpty()) {
+      return;
+    }
+    IOException e = new IOException(
+        "Could not " + action + " " + failures.size() + " of " + total + " layers");
+    for (Throwable failure : failures) {
+      e.addSuppressed(failure);
+    }
+    throw e;
+  }
+}
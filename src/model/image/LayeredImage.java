@@ -52,6 +52,27 @@ public interface LayeredImage extends Image {
    */
   void exportTopmost(String fileName, FileType fileType) throws IOException;
 
+  /**
+   * Exports a smaller or larger copy of the layer currently being edited to a file with the
+   * specified name and file type, leaving the layer itself unchanged.
+   * @param fileName the name to be given to the exported file
+   * @param fileType the type of exported file
+   * @param width the width of the exported image
+   * @param height the height of the exported image
+   * @throws IOException if the image fails to be exported
+   * @throws IllegalArgumentException if width or height are less than 1
+   */
+  void exportThumbnail(String fileName, FileType fileType, int width, int height)
+      throws IOException, IllegalArgumentException;
+
+  /**
+   * Exports every layer of this LayeredImage to a single project file with the specified name
+   * and the .lyr extension, which can be read back one layer at a time.
+   * @param fileName the name to be given to the exported file
+   * @throws IOException if the file fails to be written
+   */
+  void exportProject(String fileName) throws IOException;
+
   /**
    * Gets the layers that make up this LayeredImage.
    * @return this image's layers
@@ -75,9 +96,18 @@ public interface LayeredImage extends Image {
   void setLayerAt(int index, Layer layer) throws IllegalArgumentException;
 
   /**
-   * Replaces this LayeredImage with the given LayeredImage.
+   * Replaces this LayeredImage with the given LayeredImage, keeping which of its layers are
+   * visible and which is being edited. If none is being edited, the first layer is.
    * @param image the image to replace this image
    * @throws IllegalArgumentException if the given image is null
    */
   void replaceLayeredImage(LayeredImage image) throws IllegalArgumentException;
+
+  /**
+   * Sets whether operations on this LayeredImage are deferred. In lazy mode, operations on a layer
+   * are only run once that layer's pixels are read, for example when it is exported, and are
+   * never run on layers that are removed or replaced before then.
+   * @param lazy whether operations should be deferred
+   */
+  void setLazy(boolean lazy);
 }
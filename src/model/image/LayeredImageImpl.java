@@ -2,16 +2,19 @@ package model.image;
 
 import controller.FileType;
 import controller.ImportUtil;
+import controller.ProjectFile;
 import java.awt.image.BufferedImage;
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import model.Layer;
+import model.pixel.ArgbUtil;
 import model.pixel.Pixel;
-import model.pixel.TransparentPixelImpl;
 
 /**
  * Implementation of LayeredImage that represents an image with multiple layers.
@@ -19,7 +22,7 @@ import model.pixel.TransparentPixelImpl;
 public class LayeredImageImpl implements LayeredImage {
 
   private ArrayList<Layer> layers;
-
+  private boolean lazy;
 
   /**
    * Constructs a LayeredImageImpl object.
@@ -40,29 +43,115 @@ public class LayeredImageImpl implements LayeredImage {
   public void blurImage() {
     for (Layer l : layers) {
       if (l.getIsBeingEdited()) {
-        Image newImage = l.getImage();
+        Image newImage = editableImage(l);
         newImage.blurImage();
         l.setImage(newImage);
       }
     }
   }
 
+  @Override
+  public void blurImage(double sigma) throws IllegalArgumentException {
+    for (Layer l : layers) {
+      if (l.getIsBeingEdited()) {
+        Image newImage = editableImage(l);
+        newImage.blurImage(sigma);
+        l.setImage(newImage);
+      }
+    }
+  }
+
+  @Override
+  public IntegralImage integralImage() {
+    for (Layer l : layers) {
+      if (l.getIsBeingEdited()) {
+        return l.viewImage().integralImage();
+      }
+    }
+    throw new IllegalArgumentException("No layer is being edited");
+  }
+
+  @Override
+  public Histogram histogram() {
+    for (Layer l : layers) {
+      if (l.getIsBeingEdited()) {
+        return l.viewImage().histogram();
+      }
+    }
+    throw new IllegalArgumentException("No layer is being edited");
+  }
+
+  @Override
+  public void autoLevels() {
+    for (Layer l : layers) {
+      if (l.getIsBeingEdited()) {
+        Image newImage = editableImage(l);
+        newImage.autoLevels();
+        l.setImage(newImage);
+      }
+    }
+  }
+
+  @Override
+  public void equalize() {
+    for (Layer l : layers) {
+      if (l.getIsBeingEdited()) {
+        Image newImage = editableImage(l);
+        newImage.equalize();
+        l.setImage(newImage);
+      }
+    }
+  }
+
+  @Override
+  public void boxBlur(int radius) throws IllegalArgumentException {
+    for (Layer l : layers) {
+      if (l.getIsBeingEdited()) {
+        Image newImage = editableImage(l);
+        newImage.boxBlur(radius);
+        l.setImage(newImage);
+      }
+    }
+  }
+
+  @Override
+  public void normalizeLocalMean(int radius) throws IllegalArgumentException {
+    for (Layer l : layers) {
+      if (l.getIsBeingEdited()) {
+        Image newImage = editableImage(l);
+        newImage.normalizeLocalMean(radius);
+        l.setImage(newImage);
+      }
+    }
+  }
+
   @Override
   public void sharpenImage() {
     for (Layer l : layers) {
       if (l.getIsBeingEdited()) {
-        Image newImage = l.getImage();
+        Image newImage = editableImage(l);
         newImage.sharpenImage();
         l.setImage(newImage);
       }
     }
   }
 
+  @Override
+  public void convolve(Kernel kernel, BorderMode border) throws IllegalArgumentException {
+    for (Layer l : layers) {
+      if (l.getIsBeingEdited()) {
+        Image newImage = editableImage(l);
+        newImage.convolve(kernel, border);
+        l.setImage(newImage);
+      }
+    }
+  }
+
   @Override
   public void toGreyscale() {
     for (Layer l : layers) {
       if (l.getIsBeingEdited()) {
-        Image newImage = l.getImage();
+        Image newImage = editableImage(l);
         newImage.toGreyscale();
         l.setImage(newImage);
       }
@@ -73,19 +162,41 @@ public class LayeredImageImpl implements LayeredImage {
   public void toSepia() {
     for (Layer l : layers) {
       if (l.getIsBeingEdited()) {
-        Image newImage = l.getImage();
+        Image newImage = editableImage(l);
         newImage.toSepia();
         l.setImage(newImage);
       }
     }
   }
 
+  @Override
+  public void applyColorMatrix(ColorMatrix matrix) throws IllegalArgumentException {
+    for (Layer l : layers) {
+      if (l.getIsBeingEdited()) {
+        Image newImage = editableImage(l);
+        newImage.applyColorMatrix(matrix);
+        l.setImage(newImage);
+      }
+    }
+  }
+
+  @Override
+  public void applyColorMatrices(List<ColorMatrix> matrices) throws IllegalArgumentException {
+    for (Layer l : layers) {
+      if (l.getIsBeingEdited()) {
+        Image newImage = editableImage(l);
+        newImage.applyColorMatrices(matrices);
+        l.setImage(newImage);
+      }
+    }
+  }
+
   @Override
   public ArrayList<ArrayList<Pixel>> getPixels() {
     ArrayList<ArrayList<Pixel>> pixels = new ArrayList<>();
     for (Layer l : layers) {
       if (l.getIsBeingEdited()) {
-        pixels = l.getImage().getPixels();
+        pixels = l.viewImage().getPixels();
       }
     }
     return pixels;
@@ -95,48 +206,121 @@ public class LayeredImageImpl implements LayeredImage {
   public Pixel getPixelAt(int x, int y) {
     for (Layer l : layers) {
       if (l.getIsBeingEdited()) {
-        try {
-          Pixel curPixel = l.getImage().getPixels().get(x).get(y);
-          return new TransparentPixelImpl(curPixel.getRed(), curPixel.getGreen(),
-              curPixel.getBlue(), curPixel.getAlpha());
-        } catch (IndexOutOfBoundsException e) {
-          throw new IllegalArgumentException("Invalid arguments");
-        }
+        return ArgbUtil.toPixel(l.viewImage().getARGB(x, y));
       }
     }
     return null;
   }
 
   @Override
-  public void exportPPM(String fileName) throws FileNotFoundException {
-    File newFile = new File(fileName);
-    newFile.mkdir();
-    File textFile = new File(fileName + "\\" + "layers.txt");
-    PrintWriter pw = new PrintWriter(textFile);
-    StringBuilder sb = new StringBuilder();
+  public int getWidth() {
     for (Layer l : layers) {
-      l.getImage().exportPPM(fileName);
-      sb.append("Layer " + l.getLayerNumber() + ": " + l.getName() + "\n");
+      if (l.getIsBeingEdited()) {
+        return l.viewImage().getWidth();
+      }
     }
-    pw.println(sb);
-    pw.close();
+    return 0;
   }
 
+  @Override
+  public int getHeight() {
+    for (Layer l : layers) {
+      if (l.getIsBeingEdited()) {
+        return l.viewImage().getHeight();
+      }
+    }
+    return 0;
+  }
+
+  @Override
+  public int getARGB(int x, int y) throws IllegalArgumentException {
+    for (Layer l : layers) {
+      if (l.getIsBeingEdited()) {
+        return l.viewImage().getARGB(x, y);
+      }
+    }
+    throw new IllegalArgumentException("No layer is being edited");
+  }
+
+  @Override
+  public void setARGB(int x, int y, int argb) throws IllegalArgumentException {
+    for (Layer l : layers) {
+      if (l.getIsBeingEdited()) {
+        l.editImage().setARGB(x, y, argb);
+        return;
+      }
+    }
+    throw new IllegalArgumentException("No layer is being edited");
+  }
+
+  @Override
+  public void getRegion(int[] dst, int offset, int scan, int x, int y, int w, int h)
+      throws IllegalArgumentException {
+    for (Layer l : layers) {
+      if (l.getIsBeingEdited()) {
+        l.viewImage().getRegion(dst, offset, scan, x, y, w, h);
+        return;
+      }
+    }
+    throw new IllegalArgumentException("No layer is being edited");
+  }
+
+  @Override
+  public void setRegion(int[] src, int offset, int scan, int x, int y, int w, int h)
+      throws IllegalArgumentException {
+    for (Layer l : layers) {
+      if (l.getIsBeingEdited()) {
+        l.editImage().setRegion(src, offset, scan, x, y, w, h);
+        return;
+      }
+    }
+    throw new IllegalArgumentException("No layer is being edited");
+  }
+
+  @Override
+  public PixelCursor cursor() {
+    for (Layer l : layers) {
+      if (l.getIsBeingEdited()) {
+        return l.editImage().cursor();
+      }
+    }
+    throw new IllegalArgumentException("No layer is being edited");
+  }
+
+  @Override
+  public void exportPPM(String fileName) throws IOException {
+    exportFile(fileName, FileType.PPM);
+  }
+
+  /**
+   * Exports every layer to its own file in a folder with the given name, encoding layers
+   * concurrently through {@link LayerExecutor}. The list of layers is written last, and only once
+   * every layer has been written, so a folder is never left looking like a complete image when a
+   * layer is missing.
+   *
+   * @param fileName the name of the folder
+   * @param fileType the type of file each layer is exported to
+   * @throws IOException if the folder or any layer fails to be written
+   */
   @Override
   public void exportFile(String fileName, FileType fileType) throws IOException {
-    File newFile = new File(fileName);
-    newFile.mkdir();
-    File textFile = new File(fileName + "\\" + "layers.txt");
-    PrintWriter pw = new PrintWriter(textFile);
+    File folder = new File(fileName);
+    folder.mkdir();
+    File textFile = new File(folder, "layers.txt");
+    Files.deleteIfExists(textFile.toPath());
+    List<Layer> snapshot = new ArrayList<>(layers);
+    LayerExecutor.forEachLayer(snapshot, l -> {
+      l.viewImage().exportFile(new File(folder, l.getName()).getPath(), fileType);
+      return null;
+    }, "export");
     StringBuilder sb = new StringBuilder();
     sb.append(fileType.toString() + "\n");
-    for (Layer l : layers) {
-      l.getImage().exportFile(
-          fileName + "/" + l.getName(), fileType);
+    for (Layer l : snapshot) {
       sb.append(l.getName() + "\n");
     }
-    pw.println(sb);
-    pw.close();
+    try (PrintWriter pw = new PrintWriter(textFile)) {
+      pw.println(sb);
+    }
   }
 
   @Override
@@ -205,7 +389,7 @@ public class LayeredImageImpl implements LayeredImage {
       Layer l = getLayerAt(i);
       if (l.getName().equals(layerName)) {
         l.setIsVisible(false);
-        Image newImage = l.getImage();
+        Image newImage = editableImage(l);
         newImage.makeTransparent();
         l.setImage(newImage);
         l.setIsBeingEdited(false);
@@ -225,10 +409,25 @@ public class LayeredImageImpl implements LayeredImage {
     }
   }
 
+  @Override
+  public Image copy() {
+    ArrayList<Layer> layersCopy = new ArrayList<Layer>();
+    for (Layer l : layers) {
+      layersCopy.add(new Layer(l.getImage(), l.getLayerNumber(), l.getName()));
+    }
+    LayeredImageImpl copy = new LayeredImageImpl(layersCopy);
+    copy.lazy = lazy;
+    for (int i = 0; i < layers.size(); i += 1) {
+      layersCopy.get(i).setIsVisible(layers.get(i).getIsVisible());
+      layersCopy.get(i).setIsBeingEdited(layers.get(i).getIsBeingEdited());
+    }
+    return copy;
+  }
+
   @Override
   public void makeTransparent() {
     for (Layer l : layers) {
-      Image newImage = l.getImage();
+      Image newImage = editableImage(l);
       newImage.makeTransparent();
       l.setImage(newImage);
       l.setIsVisible(false);
@@ -237,10 +436,14 @@ public class LayeredImageImpl implements LayeredImage {
 
   @Override
   public BufferedImage toBufferedImage() {
+    return toBufferedImage(null);
+  }
+
+  @Override
+  public BufferedImage toBufferedImage(BufferedImage reuse) {
     for (Layer l : layers) {
       if (l.getIsBeingEdited() && l.getIsVisible()) {
-        Image image = l.getImage();
-        return image.toBufferedImage();
+        return l.viewImage().toBufferedImage(reuse);
       }
     }
     return null;
@@ -249,33 +452,70 @@ public class LayeredImageImpl implements LayeredImage {
   @Override
   public void downscale(int width, int height) throws IllegalArgumentException {
     for (Layer l : layers) {
-      Image image = l.getImage();
+      Image image = editableImage(l);
       image.downscale(width, height);
       l.setImage(image);
     }
   }
 
+  @Override
+  public void resize(int width, int height, ResampleFilter filter)
+      throws IllegalArgumentException {
+    for (Layer l : layers) {
+      Image image = editableImage(l);
+      image.resize(width, height, filter);
+      l.setImage(image);
+    }
+  }
+
   @Override
   public void mosaic(int seeds) throws IllegalArgumentException {
     for (Layer l : layers) {
       if (l.getIsBeingEdited()) {
-        Image image = l.getImage();
+        Image image = editableImage(l);
         image.mosaic(seeds);
         l.setImage(image);
       }
     }
   }
 
+  @Override
+  public void mosaic(int seeds, long randomSeed, SeedPlacement placement)
+      throws IllegalArgumentException {
+    for (Layer l : layers) {
+      if (l.getIsBeingEdited()) {
+        Image image = editableImage(l);
+        image.mosaic(seeds, randomSeed, placement);
+        l.setImage(image);
+      }
+    }
+  }
+
   @Override
   public void exportTopmost(String fileName, FileType fileType) throws IOException {
     for (Layer l : layers) {
       if (l.getIsBeingEdited() && l.getIsVisible()) {
-        Image image = l.getImage();
+        l.viewImage().exportFile(fileName, fileType);
+      }
+    }
+  }
+
+  @Override
+  public void exportThumbnail(String fileName, FileType fileType, int width, int height)
+      throws IOException, IllegalArgumentException {
+    for (Layer l : layers) {
+      if (l.getIsBeingEdited()) {
+        Image image = l.getScaledImage(width, height, ResampleFilter.BILINEAR);
         image.exportFile(fileName, fileType);
       }
     }
   }
 
+  @Override
+  public void exportProject(String fileName) throws IOException {
+    ProjectFile.write(layers, Paths.get(fileName + ".lyr"));
+  }
+
   @Override
   public ArrayList<Layer> getLayers() {
     ArrayList<Layer> layersCopy = new ArrayList<Layer>();
@@ -304,13 +544,50 @@ public class LayeredImageImpl implements LayeredImage {
 
   @Override
   public void replaceLayeredImage(LayeredImage image) throws IllegalArgumentException {
-    for (Layer l : layers) {
-      this.removeLayer(l.getName());
+    if (image == null) {
+      throw new IllegalArgumentException("Image cannot be null");
+    }
+    ArrayList<Layer> newLayers;
+    if (image instanceof LayeredImageImpl) {
+      // getLayers drops whether each layer is visible and being edited, so they are copied here.
+      newLayers = new ArrayList<>();
+      for (Layer l : ((LayeredImageImpl) image).layers) {
+        Layer layer = new Layer(l.viewImage(), l.getLayerNumber(), l.getName());
+        layer.setIsVisible(l.getIsVisible());
+        layer.setIsBeingEdited(l.getIsBeingEdited());
+        newLayers.add(layer);
+      }
+    } else {
+      newLayers = image.getLayers();
     }
-    for (Layer layer : image.getLayers()) {
-      this.layers.add(layer);
+    if (newLayers.isEmpty()) {
+      throw new IllegalArgumentException("Image must have at least one layer");
     }
-    setCurrent(image.getLayerAt(0).getName());
+    String current = newLayers.get(0).getName();
+    for (Layer l : newLayers) {
+      if (l.getIsBeingEdited()) {
+        current = l.getName();
+        break;
+      }
+    }
+    // Layers are replaced all at once, since removing them one by one fails at the last one.
+    this.layers = newLayers;
+    setCurrent(current);
+  }
+
+  @Override
+  public void setLazy(boolean lazy) {
+    this.lazy = lazy;
+  }
+
+  /**
+   * Gets a copy of the given layer's image to run an operation on. In lazy mode the copy records
+   * the operation so that it only runs once the layer's pixels are read. Otherwise operations
+   * recorded while lazy mode was on are run first, so the operation runs immediately.
+   */
+  private Image editableImage(Layer l) {
+    Image image = l.getImage();
+    return lazy ? LazyImage.of(image) : LazyImage.eager(image);
   }
 
   @Override
@@ -0,0 +1,451 @@
+package model.image;
+
+import controller.FileType;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import model.pixel.Pixel;
+
+/**
+ * An {@link Image} that records operations instead of running them. Each operation adds a node to
+ * a graph whose root is an image that has already been computed, and the pixels are only computed
+ * when something reads them. Copies share their nodes, and a node that more than one operation
+ * has been recorded on keeps its image once it has been computed, so work recorded before copies
+ * branch off with operations of their own is only done once however many of them are read. Work
+ * recorded on an image that is never read, such as a layer that is removed before it is saved, is
+ * never done at all.
+ *
+ * <p>Before the recorded operations are run they are planned as a whole. Consecutive color
+ * matrices are fused into a single pass through {@link Image#applyColorMatrices(List)}, and
+ * making the image transparent, which only clears alpha values and commutes with every other
+ * operation, is done once after all of them so that it runs on the smallest version of the image.
+ *
+ * <p>Arguments are checked when an operation is recorded, so invalid operations fail at the same
+ * point they would if they ran immediately. Writing pixels computes the image, and a run of writes
+ * with no operations recorded in between goes straight into an image of this object's own.
+ */
+final class LazyImage implements Image {
+
+  private Node node;
+  private Image writable;
+
+  private LazyImage(Node node) {
+    this.node = node;
+  }
+
+  /**
+   * Gets a lazy version of the given image, which is the image itself if it is already lazy.
+   *
+   * @param image the image whose operations should be deferred
+   * @return an image that records operations on the given image
+   */
+  static Image of(Image image) {
+    if (image instanceof LazyImage) {
+      return image;
+    }
+    return new LazyImage(new Node(image));
+  }
+
+  /**
+   * Gets a version of the given image that runs operations immediately, running any operations
+   * recorded on it first if it is lazy.
+   *
+   * @param image the image whose operations should no longer be deferred
+   * @return the image itself if it is not lazy, or a copy of what it computes otherwise
+   */
+  static Image eager(Image image) {
+    if (image instanceof LazyImage) {
+      return ((LazyImage) image).evaluate().copy();
+    }
+    return image;
+  }
+
+  /**
+   * Represents a recorded operation.
+   */
+  @FunctionalInterface
+  private interface Operation {
+
+    /**
+     * Runs this operation on the given image.
+     *
+     * @param image the image to be changed
+     */
+    void apply(Image image);
+  }
+
+  private static final class ColorOperation implements Operation {
+
+    private final ColorMatrix matrix;
+
+    ColorOperation(ColorMatrix matrix) {
+      this.matrix = matrix;
+    }
+
+    @Override
+    public void apply(Image image) {
+      image.applyColorMatrix(matrix);
+    }
+  }
+
+  private static final class TransparentOperation implements Operation {
+
+    @Override
+    public void apply(Image image) {
+      image.makeTransparent();
+    }
+  }
+
+  /**
+   * A node in the graph of recorded operations. A node either holds a computed image, or the
+   * operation that produces its image from its parent's. Once a node's image has been computed
+   * it is kept and the node lets go of its parent. Nodes with a single child are computed along
+   * with it, so their operations can be planned together, while nodes with several children keep
+   * their image for all of them.
+   */
+  private static final class Node {
+
+    private final int width;
+    private final int height;
+    private Node parent;
+    private Operation operation;
+    private int children;
+    private volatile Image value;
+
+    Node(Image value) {
+      this.width = value.getWidth();
+      this.height = value.getHeight();
+      this.value = value;
+    }
+
+    Node(Node parent, Operation operation, int width, int height) {
+      this.width = width;
+      this.height = height;
+      this.parent = parent;
+      this.operation = operation;
+      synchronized (parent) {
+        parent.children += 1;
+      }
+    }
+
+    /**
+     * Computes the image of this node. Locks are only ever taken from a node towards its
+     * ancestors, so concurrent evaluations cannot deadlock.
+     */
+    synchronized Image evaluate() {
+      if (value != null) {
+        return value;
+      }
+      Deque<Operation> pending = new ArrayDeque<>();
+      pending.push(operation);
+      Node n = parent;
+      while (true) {
+        synchronized (n) {
+          if (n.value != null || n.children > 1) {
+            break;
+          }
+          pending.push(n.operation);
+          n = n.parent;
+        }
+      }
+      // A computed node gives its image at once, and a shared one computes and keeps it.
+      Image result = n.evaluate().copy();
+      for (Operation operation : plan(pending)) {
+        operation.apply(result);
+      }
+      value = result;
+      parent = null;
+      operation = null;
+      return result;
+    }
+  }
+
+  private static List<Operation> plan(Deque<Operation> pending) {
+    List<Operation> planned = new ArrayList<>();
+    List<ColorMatrix> matrices = new ArrayList<>();
+    boolean transparent = false;
+    for (Operation operation : pending) {
+      if (operation instanceof TransparentOperation) {
+        transparent = true;
+      } else if (operation instanceof ColorOperation) {
+        matrices.add(((ColorOperation) operation).matrix);
+      } else {
+        addColorPass(planned, matrices);
+        planned.add(operation);
+      }
+    }
+    addColorPass(planned, matrices);
+    if (transparent) {
+      planned.add(new TransparentOperation());
+    }
+    return planned;
+  }
+
+  private static void addColorPass(List<Operation> planned, List<ColorMatrix> matrices) {
+    if (matrices.size() == 1) {
+      planned.add(new ColorOperation(matrices.get(0)));
+    } else if (!matrices.isEmpty()) {
+      List<ColorMatrix> run = new ArrayList<>(matrices);
+      planned.add(image -> image.applyColorMatrices(run));
+    }
+    matrices.clear();
+  }
+
+  private void record(Operation operation) {
+    node = new Node(node, operation, node.width, node.height);
+    writable = null;
+  }
+
+  private Image evaluate() {
+    return node.evaluate();
+  }
+
+  /**
+   * Gets an image that can be written to, which is this object's own image. The first write
+   * after an operation is recorded computes the image and takes a copy of it, which becomes the
+   * new image of this object; later writes go straight into that copy.
+   */
+  private Image modify() {
+    if (writable == null) {
+      writable = evaluate().copy();
+      node = new Node(writable);
+    }
+    return writable;
+  }
+
+  @Override
+  public void blurImage() {
+    record(Image::blurImage);
+  }
+
+  @Override
+  public void blurImage(double sigma) throws IllegalArgumentException {
+    PackedImage.checkSigma(sigma, node.width, node.height);
+    record(image -> image.blurImage(sigma));
+  }
+
+  @Override
+  public void sharpenImage() {
+    record(Image::sharpenImage);
+  }
+
+  @Override
+  public void convolve(Kernel kernel, BorderMode border) throws IllegalArgumentException {
+    if (kernel == null || border == null) {
+      throw new IllegalArgumentException("Kernel and border mode cannot be null");
+    }
+    record(image -> image.convolve(kernel, border));
+  }
+
+  @Override
+  public IntegralImage integralImage() {
+    return evaluate().integralImage();
+  }
+
+  @Override
+  public Histogram histogram() {
+    return evaluate().histogram();
+  }
+
+  @Override
+  public void autoLevels() {
+    record(Image::autoLevels);
+  }
+
+  @Override
+  public void equalize() {
+    record(Image::equalize);
+  }
+
+  @Override
+  public void boxBlur(int radius) throws IllegalArgumentException {
+    if (radius < 0) {
+      throw new IllegalArgumentException("Radius cannot be negative");
+    }
+    record(image -> image.boxBlur(radius));
+  }
+
+  @Override
+  public void normalizeLocalMean(int radius) throws IllegalArgumentException {
+    if (radius < 0) {
+      throw new IllegalArgumentException("Radius cannot be negative");
+    }
+    record(image -> image.normalizeLocalMean(radius));
+  }
+
+  @Override
+  public void toGreyscale() {
+    record(new ColorOperation(ColorMatrix.GREYSCALE));
+  }
+
+  @Override
+  public void toSepia() {
+    record(new ColorOperation(ColorMatrix.SEPIA));
+  }
+
+  @Override
+  public void applyColorMatrix(ColorMatrix matrix) throws IllegalArgumentException {
+    if (matrix == null) {
+      throw new IllegalArgumentException("Color matrix cannot be null");
+    }
+    record(new ColorOperation(matrix));
+  }
+
+  @Override
+  public void applyColorMatrices(List<ColorMatrix> matrices) throws IllegalArgumentException {
+    if (matrices == null) {
+      throw new IllegalArgumentException("Color matrices cannot be null");
+    }
+    for (ColorMatrix matrix : matrices) {
+      if (matrix == null) {
+        throw new IllegalArgumentException("Color matrices cannot be null");
+      }
+    }
+    for (ColorMatrix matrix : matrices) {
+      record(new ColorOperation(matrix));
+    }
+  }
+
+  @Override
+  public void makeTransparent() {
+    record(new TransparentOperation());
+  }
+
+  @Override
+  public void downscale(int newWidth, int newHeight) throws IllegalArgumentException {
+    if (newWidth <= 0 || newHeight <= 0 || newWidth > node.width || newHeight > node.height) {
+      throw new IllegalArgumentException("Invalid argument");
+    }
+    node = new Node(node, image -> image.downscale(newWidth, newHeight), newWidth, newHeight);
+    writable = null;
+  }
+
+  @Override
+  public void resize(int newWidth, int newHeight, ResampleFilter filter)
+      throws IllegalArgumentException {
+    if (newWidth <= 0 || newHeight <= 0) {
+      throw new IllegalArgumentException("Width and height must be positive");
+    }
+    if (filter == null) {
+      throw new IllegalArgumentException("Resample filter cannot be null");
+    }
+    node = new Node(node, image -> image.resize(newWidth, newHeight, filter), newWidth,
+        newHeight);
+    writable = null;
+  }
+
+  @Override
+  public void mosaic(int seeds) throws IllegalArgumentException {
+    if (seeds <= 0 || (long) seeds > (long) node.width * node.height) {
+      throw new IllegalArgumentException("Invalid number of seeds");
+    }
+    record(image -> image.mosaic(seeds));
+  }
+
+  @Override
+  public void mosaic(int seeds, long randomSeed, SeedPlacement placement)
+      throws IllegalArgumentException {
+    if (seeds <= 0 || (long) seeds > (long) node.width * node.height) {
+      throw new IllegalArgumentException("Invalid number of seeds");
+    }
+    if (placement == null) {
+      throw new IllegalArgumentException("Seed placement cannot be null");
+    }
+    record(image -> image.mosaic(seeds, randomSeed, placement));
+  }
+
+  @Override
+  public int getWidth() {
+    return node.width;
+  }
+
+  @Override
+  public int getHeight() {
+    return node.height;
+  }
+
+  @Override
+  public void exportPPM(String fileName) throws IOException {
+    evaluate().exportPPM(fileName);
+  }
+
+  @Override
+  public void exportFile(String filename, FileType fileType) throws IOException {
+    evaluate().exportFile(filename, fileType);
+  }
+
+  @Override
+  public ArrayList<ArrayList<Pixel>> getPixels() {
+    return evaluate().getPixels();
+  }
+
+  @Override
+  public Pixel getPixelAt(int x, int y) throws IllegalArgumentException {
+    return evaluate().getPixelAt(x, y);
+  }
+
+  @Override
+  public int getARGB(int x, int y) throws IllegalArgumentException {
+    return evaluate().getARGB(x, y);
+  }
+
+  @Override
+  public void setARGB(int x, int y, int argb) throws IllegalArgumentException {
+    modify().setARGB(x, y, argb);
+  }
+
+  @Override
+  public void getRegion(int[] dst, int offset, int scan, int x, int y, int w, int h)
+      throws IllegalArgumentException {
+    evaluate().getRegion(dst, offset, scan, x, y, w, h);
+  }
+
+  @Override
+  public void setRegion(int[] src, int offset, int scan, int x, int y, int w, int h)
+      throws IllegalArgumentException {
+    modify().setRegion(src, offset, scan, x, y, w, h);
+  }
+
+  @Override
+  public PixelCursor cursor() {
+    return modify().cursor();
+  }
+
+  @Override
+  public Image copy() {
+    if (writable != null) {
+      // Later writes to this image must not reach the copy, so it gets a snapshot of its own.
+      return new LazyImage(new Node(writable.copy()));
+    }
+    return new LazyImage(node);
+  }
+
+  @Override
+  public BufferedImage toBufferedImage() {
+    return evaluate().toBufferedImage();
+  }
+
+  @Override
+  public BufferedImage toBufferedImage(BufferedImage reuse) {
+    return evaluate().toBufferedImage(reuse);
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    } else if (other instanceof LazyImage) {
+      return evaluate().equals(((LazyImage) other).evaluate());
+    } else {
+      return evaluate().equals(other);
+    }
+  }
+
+  @Override
+  public int hashCode() {
+    return evaluate().hashCode();
+  }
+}
@@ -0,0 +1,432 @@
+package model.image;
+
+import controller.FileType;
+import controller.PpmCodec;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import model.pixel.ArgbUtil;
+import model.pixel.Pixel;
+
+/**
+ * An {@link Image} whose pixels are read straight from a file mapped into memory, so opening even
+ * a very large file costs no more than mapping it. Reading pixels, exporting the image and
+ * computing its statistics decode the bytes of the file as they are needed without keeping a copy
+ * of them. The first operation that changes the image decodes it once into a {@link PackedImage},
+ * which every later operation uses instead of the file.
+ *
+ * <p>The file is mapped read only and is never written to. It must not be changed or truncated
+ * while the image is in use, since the image reads whatever the file holds at the time. Copies
+ * share the mapping until they are changed.
+ */
+public final class MappedImage implements Image {
+
+  /**
+   * The largest number of bytes mapped at once, kept well below the limit of a single mapping.
+   * Larger files are mapped as several regions of whole rows.
+   */
+  private static final int MAX_REGION_BYTES = 1 << 30;
+
+  private final ByteBuffer[] regions;
+  private final int rowsPerRegion;
+  private final int width;
+  private final int height;
+  private final Layout layout;
+  private PackedImage pixels;
+  private IntegralImage integral;
+  private Histogram histogram;
+
+  /**
+   * The ways pixels can be laid out in a mapped file. Pixels are stored one row after another
+   * from the top of the image with no padding between rows.
+   */
+  public enum Layout {
+    /**
+     * Three bytes per pixel holding red, green and blue, as in the samples of a binary PPM file
+     * with a maximum value of 255. Every pixel is opaque.
+     */
+    RGB(3),
+    /**
+     * Four bytes per pixel holding red, green, blue and alpha.
+     */
+    RGBA(4);
+
+    private final int bytesPerPixel;
+
+    Layout(int bytesPerPixel) {
+      this.bytesPerPixel = bytesPerPixel;
+    }
+  }
+
+  private MappedImage(ByteBuffer[] regions, int rowsPerRegion, int width, int height,
+      Layout layout) {
+    this.regions = regions;
+    this.rowsPerRegion = rowsPerRegion;
+    this.width = width;
+    this.height = height;
+    this.layout = layout;
+  }
+
+  /**
+   * Maps the pixels of an image held in a file.
+   *
+   * @param path   the path of the file
+   * @param offset the position in the file of the first byte of the first pixel
+   * @param width  the width of the image
+   * @param height the height of the image
+   * @param layout the way the pixels are laid out in the file
+   * @return an image that reads its pixels from the file
+   * @throws IOException if the file cannot be mapped or is too short to hold the image
+   * @throws IllegalArgumentException if offset, width or height are negative, the image is too
+   *                                  large or layout is null
+   */
+  public static Image map(Path path, long offset, int width, int height, Layout layout)
+      throws IOException, IllegalArgumentException {
+    if (offset < 0 || width < 0 || height < 0 || (long) width * height > Integer.MAX_VALUE - 8) {
+      throw new IllegalArgumentException("Invalid image dimensions");
+    }
+    if (layout == null) {
+      throw new IllegalArgumentException("Layout cannot be null");
+    }
+    long rowBytes = (long) width * layout.bytesPerPixel;
+    try (FileChannel channel = FileChannel.open(path)) {
+      if (channel.size() - offset < rowBytes * height) {
+        throw new IOException("File is too short to hold a " + width + "x" + height + " image");
+      }
+      int rowsPerRegion = (int) Math.max(1, Math.min(height, MAX_REGION_BYTES / Math.max(1,
+          rowBytes)));
+      ByteBuffer[] regions = new ByteBuffer[height == 0 ? 0 : (height - 1) / rowsPerRegion + 1];
+      for (int i = 0; i < regions.length; i += 1) {
+        int rows = Math.min(rowsPerRegion, height - i * rowsPerRegion);
+        regions[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+            offset + i * rowsPerRegion * rowBytes, rows * rowBytes);
+      }
+      // The mappings stay valid after the channel is closed.
+      return new MappedImage(regions, rowsPerRegion, width, height, layout);
+    }
+  }
+
+  /**
+   * Decodes w pixels of row y starting at column x into dst, using bytes as scratch space.
+   */
+  private void decodeRow(int x, int y, int w, byte[] bytes, int[] dst, int offset) {
+    int size = layout.bytesPerPixel;
+    ByteBuffer region = regions[y / rowsPerRegion];
+    region.get((y % rowsPerRegion) * width * size + x * size, bytes, 0, w * size);
+    if (layout == Layout.RGB) {
+      for (int i = 0; i < w; i += 1) {
+        dst[offset + i] = 0xFF000000 | ((bytes[i * 3] & 0xFF) << 16)
+            | ((bytes[i * 3 + 1] & 0xFF) << 8) | (bytes[i * 3 + 2] & 0xFF);
+      }
+    } else {
+      for (int i = 0; i < w; i += 1) {
+        dst[offset + i] = ((bytes[i * 4 + 3] & 0xFF) << 24) | ((bytes[i * 4] & 0xFF) << 16)
+            | ((bytes[i * 4 + 1] & 0xFF) << 8) | (bytes[i * 4 + 2] & 0xFF);
+      }
+    }
+  }
+
+  /**
+   * Decodes every pixel of the file into dst, one row after another, in parallel.
+   */
+  private void decodeAll(int[] dst) {
+    Parallel.forEachBand(width, height, (rowStart, rowEnd) -> {
+      byte[] bytes = new byte[width * layout.bytesPerPixel];
+      for (int y = rowStart; y < rowEnd; y += 1) {
+        decodeRow(0, y, width, bytes, dst, y * width);
+      }
+    });
+  }
+
+  /**
+   * Gets the pixels of this image without keeping them, decoding them from the file if the image
+   * has not been changed.
+   */
+  private PackedImage view() {
+    if (pixels != null) {
+      return pixels;
+    }
+    int[] data = new int[width * height];
+    decodeAll(data);
+    return new PackedImage(width, height, width, data);
+  }
+
+  /**
+   * Gets the pixels of this image so that they can be changed, decoding them from the file the
+   * first time.
+   */
+  private PackedImage modify() {
+    if (pixels == null) {
+      pixels = view();
+      integral = null;
+      histogram = null;
+    }
+    return pixels;
+  }
+
+  @Override
+  public void blurImage() {
+    modify().blurImage();
+  }
+
+  @Override
+  public void blurImage(double sigma) throws IllegalArgumentException {
+    PackedImage.checkSigma(sigma, width, height);
+    modify().blurImage(sigma);
+  }
+
+  @Override
+  public void sharpenImage() {
+    modify().sharpenImage();
+  }
+
+  @Override
+  public void convolve(Kernel kernel, BorderMode border) throws IllegalArgumentException {
+    modify().convolve(kernel, border);
+  }
+
+  @Override
+  public IntegralImage integralImage() {
+    if (pixels != null) {
+      return pixels.integralImage();
+    }
+    if (integral == null) {
+      integral = view().integralImage();
+    }
+    return integral;
+  }
+
+  @Override
+  public Histogram histogram() {
+    if (pixels != null) {
+      return pixels.histogram();
+    }
+    if (histogram == null) {
+      int chunks = Math.max(1, Math.min(Parallel.getParallelism(), height));
+      int[][] partial = new int[chunks][];
+      // Each band of rows is decoded and counted one row at a time, so the image is never
+      // decoded as a whole.
+      int chunkCost = width * (height / chunks);
+      Parallel.forEachBand(chunkCost, chunks, (chunkStart, chunkEnd) -> {
+        byte[] bytes = new byte[width * layout.bytesPerPixel];
+        int[] row = new int[width];
+        for (int c = chunkStart; c < chunkEnd; c += 1) {
+          int[] counts = new int[Histogram.BINS];
+          for (int y = c * height / chunks; y < (c + 1) * height / chunks; y += 1) {
+            decodeRow(0, y, width, bytes, row, 0);
+            Histogram.count(row, 0, width, counts);
+          }
+          partial[c] = counts;
+        }
+      });
+      histogram = Histogram.merge(partial, (long) width * height);
+    }
+    return histogram;
+  }
+
+  @Override
+  public void autoLevels() {
+    modify().autoLevels();
+  }
+
+  @Override
+  public void equalize() {
+    modify().equalize();
+  }
+
+  @Override
+  public void boxBlur(int radius) throws IllegalArgumentException {
+    modify().boxBlur(radius);
+  }
+
+  @Override
+  public void normalizeLocalMean(int radius) throws IllegalArgumentException {
+    modify().normalizeLocalMean(radius);
+  }
+
+  @Override
+  public void toGreyscale() {
+    modify().toGreyscale();
+  }
+
+  @Override
+  public void toSepia() {
+    modify().toSepia();
+  }
+
+  @Override
+  public void applyColorMatrix(ColorMatrix matrix) throws IllegalArgumentException {
+    modify().applyColorMatrix(matrix);
+  }
+
+  @Override
+  public void applyColorMatrices(List<ColorMatrix> matrices) throws IllegalArgumentException {
+    modify().applyColorMatrices(matrices);
+  }
+
+  @Override
+  public void makeTransparent() {
+    modify().makeTransparent();
+  }
+
+  @Override
+  public void downscale(int newWidth, int newHeight) throws IllegalArgumentException {
+    modify().downscale(newWidth, newHeight);
+  }
+
+  @Override
+  public void resize(int newWidth, int newHeight, ResampleFilter filter)
+      throws IllegalArgumentException {
+    modify().resize(newWidth, newHeight, filter);
+  }
+
+  @Override
+  public void mosaic(int seeds) throws IllegalArgumentException {
+    modify().mosaic(seeds);
+  }
+
+  @Override
+  public void mosaic(int seeds, long randomSeed, SeedPlacement placement)
+      throws IllegalArgumentException {
+    modify().mosaic(seeds, randomSeed, placement);
+  }
+
+  @Override
+  public int getWidth() {
+    return pixels == null ? width : pixels.getWidth();
+  }
+
+  @Override
+  public int getHeight() {
+    return pixels == null ? height : pixels.getHeight();
+  }
+
+  @Override
+  public void exportPPM(String fileName) throws IOException {
+    exportFile(fileName, FileType.PPM);
+  }
+
+  @Override
+  public void exportFile(String filename, FileType fileType) throws IOException {
+    if (pixels != null) {
+      pixels.exportFile(filename, fileType);
+    } else if (fileType == FileType.PPM || fileType == FileType.PPM_BINARY
+        || fileType == FileType.PGM) {
+      // These are written a row at a time through getRegion, straight from the file.
+      PpmCodec.write(this, Paths.get(filename + "." + fileType.extension()), filename, fileType);
+    } else {
+      view().exportFile(filename, fileType);
+    }
+  }
+
+  @Override
+  public ArrayList<ArrayList<Pixel>> getPixels() {
+    return view().getPixels();
+  }
+
+  @Override
+  public Pixel getPixelAt(int x, int y) throws IllegalArgumentException {
+    return ArgbUtil.toPixel(getARGB(x, y));
+  }
+
+  @Override
+  public int getARGB(int x, int y) throws IllegalArgumentException {
+    if (pixels != null) {
+      return pixels.getARGB(x, y);
+    }
+    if (x < 0 || y < 0 || x >= width || y >= height) {
+      throw new IllegalArgumentException("Invalid arguments");
+    }
+    int[] argb = new int[1];
+    decodeRow(x, y, 1, new byte[layout.bytesPerPixel], argb, 0);
+    return argb[0];
+  }
+
+  @Override
+  public void setARGB(int x, int y, int argb) throws IllegalArgumentException {
+    modify().setARGB(x, y, argb);
+  }
+
+  @Override
+  public void getRegion(int[] dst, int offset, int scan, int x, int y, int w, int h)
+      throws IllegalArgumentException {
+    if (pixels != null) {
+      pixels.getRegion(dst, offset, scan, x, y, w, h);
+      return;
+    }
+    if (dst == null || w < 0 || h < 0 || x < 0 || y < 0
+        || x + w > width || y + h > height || offset < 0 || scan < w) {
+      throw new IllegalArgumentException("Invalid region");
+    }
+    if (h > 0 && offset + (long) (h - 1) * scan + w > dst.length) {
+      throw new IllegalArgumentException("Region does not fit in the given array");
+    }
+    byte[] bytes = new byte[w * layout.bytesPerPixel];
+    for (int j = 0; j < h; j += 1) {
+      decodeRow(x, y + j, w, bytes, dst, offset + j * scan);
+    }
+  }
+
+  @Override
+  public void setRegion(int[] src, int offset, int scan, int x, int y, int w, int h)
+      throws IllegalArgumentException {
+    modify().setRegion(src, offset, scan, x, y, w, h);
+  }
+
+  @Override
+  public PixelCursor cursor() {
+    return modify().cursor();
+  }
+
+  @Override
+  public Image copy() {
+    if (pixels != null) {
+      return pixels.copy();
+    }
+    MappedImage copy = new MappedImage(regions, rowsPerRegion, width, height, layout);
+    copy.integral = integral;
+    copy.histogram = histogram;
+    return copy;
+  }
+
+  @Override
+  public BufferedImage toBufferedImage() {
+    return toBufferedImage(null);
+  }
+
+  @Override
+  public BufferedImage toBufferedImage(BufferedImage reuse) {
+    if (pixels != null) {
+      return pixels.toBufferedImage(reuse);
+    }
+    BufferedImage output = reuse;
+    if (output == null || output.getWidth() != width || output.getHeight() != height
+        || output.getType() != BufferedImage.TYPE_INT_ARGB) {
+      output = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    }
+    decodeAll(((DataBufferInt) output.getRaster().getDataBuffer()).getData());
+    return output;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    } else if (other instanceof MappedImage) {
+      return view().equals(((MappedImage) other).view());
+    } else {
+      return view().equals(other);
+    }
+  }
+
+  @Override
+  public int hashCode() {
+    return view().hashCode();
+  }
+}
@@ -0,0 +1,656 @@
+package model.image;
+
+import controller.FileType;
+import controller.PpmCodec;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import model.pixel.ArgbUtil;
+import model.pixel.Pixel;
+
+/**
+ * An implementation of {@link Image} that stores its pixels in a single array of packed ARGB
+ * values. The pixel at (x, y) is found at index {@code y * stride + x}.
+ *
+ * <p>Copies made with {@link #copy()} share the same array until one of them is modified, at
+ * which point the modified image moves to storage of its own. Per-pixel operations are split into
+ * bands of rows and run in parallel through {@link Parallel}.
+ */
+public class PackedImage implements Image {
+
+  /**
+   * Blurs smaller than this are done with a Gaussian kernel, which is cheap at that size and more
+   * accurate than the box blurs used for larger ones.
+   */
+  private static final double MIN_BOX_BLUR_SIGMA = 2;
+
+  /**
+   * The fraction of pixels at each end of a channel's range that auto levels lets become pure
+   * black or white, so that a few outlying pixels do not stop the rest from being stretched.
+   */
+  private static final double AUTO_LEVELS_CLIP = 0.001;
+
+  protected int width;
+  protected int height;
+  protected int stride;
+  protected int[] data;
+  private PixelBuffer buffer;
+  /**
+   * Whether this image is known to be the only one using its buffer, which holds no statistics,
+   * so that it can be written to without checking. Only copying this image or keeping statistics
+   * for its buffer can make that untrue.
+   */
+  private boolean writable;
+
+  /**
+   * Creates a new {@code PackedImage} object with the given dimensions where every pixel is
+   * completely transparent.
+   *
+   * @param width  the width of this image
+   * @param height the height of this image
+   * @throws IllegalArgumentException if width or height are negative
+   */
+  public PackedImage(int width, int height) throws IllegalArgumentException {
+    this(width, height, width, new int[Math.max(0, width) * Math.max(0, height)]);
+  }
+
+  /**
+   * Creates a new {@code PackedImage} object backed by the given array. The array is used
+   * directly and is not copied.
+   *
+   * @param width  the width of this image
+   * @param height the height of this image
+   * @param stride the distance in the array between the start of one row and the next
+   * @param data   the packed ARGB values making up this image
+   * @throws IllegalArgumentException if data is null, width or height are negative, stride is
+   *                                  less than width, or data is too small for the given
+   *                                  dimensions
+   */
+  public PackedImage(int width, int height, int stride, int[] data)
+      throws IllegalArgumentException {
+    if (data == null) {
+      throw new IllegalArgumentException("Image data cannot be null");
+    }
+    if (width < 0 || height < 0 || stride < width) {
+      throw new IllegalArgumentException("Invalid image dimensions");
+    }
+    if (height > 0 && (long) stride * (height - 1) + width > data.length) {
+      throw new IllegalArgumentException("Image data is too small for the given dimensions");
+    }
+    this.width = width;
+    this.height = height;
+    this.stride = stride;
+    this.data = data;
+    this.buffer = new PixelBuffer(data);
+  }
+
+  private PackedImage(PackedImage other) {
+    this.width = other.width;
+    this.height = other.height;
+    this.stride = other.stride;
+    this.data = other.data;
+    this.buffer = other.buffer.share();
+  }
+
+  /**
+   * Replaces the contents of this image with the given tightly packed array.
+   *
+   * @param width  the new width of this image
+   * @param height the new height of this image
+   * @param data   the new packed ARGB values of this image
+   */
+  protected void setData(int width, int height, int[] data) {
+    if (buffer != null) {
+      buffer.release();
+    }
+    this.width = width;
+    this.height = height;
+    this.stride = width;
+    this.data = data;
+    this.buffer = new PixelBuffer(data);
+    this.writable = false;
+  }
+
+  /**
+   * Makes sure that this image is the only one using its storage so that it can be written to.
+   * If the storage is shared with a copy, this image is moved to a new array, leaving the shared
+   * array untouched.
+   *
+   * @param keepPixels whether the current pixels should be copied into the new array; operations
+   *                   that overwrite every pixel from a saved reference to the old array can
+   *                   skip the copy
+   */
+  protected void detach(boolean keepPixels) {
+    if (writable) {
+      return;
+    }
+    if (!buffer.isShared()) {
+      buffer.clearStatistics();
+      writable = true;
+      return;
+    }
+    int[] newData = new int[width * height];
+    if (keepPixels) {
+      for (int y = 0; y < height; y += 1) {
+        System.arraycopy(data, y * stride, newData, y * width, width);
+      }
+    }
+    setData(width, height, newData);
+  }
+
+  @Override
+  public Image copy() {
+    writable = false;
+    return new PackedImage(this);
+  }
+
+  @Override
+  public IntegralImage integralImage() {
+    IntegralImage integral = buffer.integral;
+    if (integral == null) {
+      integral = IntegralImage.of(data, width, height, stride);
+      buffer.integral = integral;
+      writable = false;
+    }
+    return integral;
+  }
+
+  @Override
+  public Histogram histogram() {
+    Histogram histogram = buffer.histogram;
+    if (histogram == null) {
+      histogram = Histogram.of(data, width, height, stride);
+      buffer.histogram = histogram;
+      writable = false;
+    }
+    return histogram;
+  }
+
+  @Override
+  public void autoLevels() {
+    Histogram histogram = histogram();
+    applyChannelTables(histogram.levelsTable(Histogram.RED, AUTO_LEVELS_CLIP),
+        histogram.levelsTable(Histogram.GREEN, AUTO_LEVELS_CLIP),
+        histogram.levelsTable(Histogram.BLUE, AUTO_LEVELS_CLIP));
+  }
+
+  @Override
+  public void equalize() {
+    Histogram histogram = histogram();
+    applyChannelTables(histogram.equalizeTable(Histogram.RED),
+        histogram.equalizeTable(Histogram.GREEN), histogram.equalizeTable(Histogram.BLUE));
+  }
+
+  /**
+   * Maps the red, green and blue values of every pixel through the given 256 entry tables,
+   * leaving alpha values unchanged.
+   */
+  private void applyChannelTables(int[] red, int[] green, int[] blue) {
+    int[] src = data;
+    int srcStride = stride;
+    detach(false);
+    int[] dst = data;
+    int dstStride = stride;
+    Parallel.forEachBand(width, height, (rowStart, rowEnd) -> {
+      for (int y = rowStart; y < rowEnd; y += 1) {
+        for (int x = 0; x < width; x += 1) {
+          int argb = src[y * srcStride + x];
+          dst[y * dstStride + x] = (argb & 0xFF000000) | (red[(argb >> 16) & 0xFF] << 16)
+              | (green[(argb >> 8) & 0xFF] << 8) | blue[argb & 0xFF];
+        }
+      }
+    });
+  }
+
+  @Override
+  public void boxBlur(int radius) throws IllegalArgumentException {
+    if (radius < 0) {
+      throw new IllegalArgumentException("Radius cannot be negative");
+    }
+    IntegralImage integral = integralImage();
+    int[] result = new int[width * height];
+    Parallel.forEachBand(width, height, (rowStart, rowEnd) -> {
+      for (int y = rowStart; y < rowEnd; y += 1) {
+        int top = Math.max(0, y - radius);
+        int bottom = (int) Math.min(height, (long) y + radius + 1);
+        for (int x = 0; x < width; x += 1) {
+          result[y * width + x] = integral.mean(Math.max(0, x - radius), top,
+              (int) Math.min(width, (long) x + radius + 1), bottom);
+        }
+      }
+    });
+    setData(width, height, result);
+  }
+
+  @Override
+  public void normalizeLocalMean(int radius) throws IllegalArgumentException {
+    if (radius < 0) {
+      throw new IllegalArgumentException("Radius cannot be negative");
+    }
+    IntegralImage integral = integralImage();
+    int[] src = data;
+    int srcStride = stride;
+    int[] result = new int[width * height];
+    Parallel.forEachBand(width, height, (rowStart, rowEnd) -> {
+      for (int y = rowStart; y < rowEnd; y += 1) {
+        int top = Math.max(0, y - radius);
+        int bottom = (int) Math.min(height, (long) y + radius + 1);
+        for (int x = 0; x < width; x += 1) {
+          int argb = src[y * srcStride + x];
+          int mean = integral.mean(Math.max(0, x - radius), top,
+              (int) Math.min(width, (long) x + radius + 1), bottom);
+          result[y * width + x] = ArgbUtil.pack(ArgbUtil.alpha(argb),
+              ArgbUtil.clamp(ArgbUtil.red(argb) - ArgbUtil.red(mean) + 128),
+              ArgbUtil.clamp(ArgbUtil.green(argb) - ArgbUtil.green(mean) + 128),
+              ArgbUtil.clamp(ArgbUtil.blue(argb) - ArgbUtil.blue(mean) + 128));
+        }
+      }
+    });
+    setData(width, height, result);
+  }
+
+  @Override
+  public void blurImage() {
+    convolve(Kernel.BLUR, BorderMode.ZERO);
+  }
+
+  @Override
+  public void blurImage(double sigma) throws IllegalArgumentException {
+    checkSigma(sigma, width, height);
+    if (sigma < MIN_BOX_BLUR_SIGMA) {
+      convolve(Kernel.gaussian(sigma), BorderMode.CLAMP);
+    } else if (width > 0 && height > 0) {
+      setData(width, height, BoxBlur.blur(data, width, height, stride, sigma));
+    }
+  }
+
+  /**
+   * Checks that a Gaussian blur with the given standard deviation can be done on an image of the
+   * given size. Large blurs are done with boxes, which may be no wider than the image.
+   *
+   * @param sigma  the standard deviation of the blur in pixels
+   * @param width  the width of the image
+   * @param height the height of the image
+   * @throws IllegalArgumentException if sigma is not positive and finite, or is so large that
+   *                                  its boxes would be wider than the image
+   */
+  static void checkSigma(double sigma, int width, int height) throws IllegalArgumentException {
+    if (!(sigma > 0) || Double.isInfinite(sigma)) {
+      throw new IllegalArgumentException("Sigma must be positive and finite");
+    }
+    if (sigma >= MIN_BOX_BLUR_SIGMA && width > 0 && height > 0) {
+      int[] radii = BoxBlur.boxRadii(sigma);
+      if (radii[radii.length - 1] > Math.max(width, height)) {
+        throw new IllegalArgumentException("Sigma is too large for the size of the image");
+      }
+    }
+  }
+
+  @Override
+  public void sharpenImage() {
+    convolve(Kernel.SHARPEN, BorderMode.ZERO);
+  }
+
+  @Override
+  public void convolve(Kernel kernel, BorderMode border) throws IllegalArgumentException {
+    if (kernel == null || border == null) {
+      throw new IllegalArgumentException("Kernel and border mode cannot be null");
+    }
+    setData(width, height, Convolution.convolve(data, width, height, stride, kernel, border));
+  }
+
+  @Override
+  public void toGreyscale() {
+    applyColorMatrix(ColorMatrix.GREYSCALE);
+  }
+
+  @Override
+  public void toSepia() {
+    applyColorMatrix(ColorMatrix.SEPIA);
+  }
+
+  @Override
+  public void applyColorMatrix(ColorMatrix matrix) throws IllegalArgumentException {
+    if (matrix == null) {
+      throw new IllegalArgumentException("Color matrix cannot be null");
+    }
+    applyColorMatrices(List.of(matrix));
+  }
+
+  @Override
+  public void applyColorMatrices(List<ColorMatrix> matrices) throws IllegalArgumentException {
+    if (matrices == null) {
+      throw new IllegalArgumentException("Color matrices cannot be null");
+    }
+    ColorLut[] luts = new ColorLut[matrices.size()];
+    for (int i = 0; i < luts.length; i += 1) {
+      if (matrices.get(i) == null) {
+        throw new IllegalArgumentException("Color matrices cannot be null");
+      }
+      luts[i] = matrices.get(i).lut();
+    }
+    if (luts.length == 0) {
+      return;
+    }
+    int[] src = data;
+    int srcStride = stride;
+    detach(false);
+    int[] dst = data;
+    int dstStride = stride;
+    Parallel.forEachBand(width, height, (rowStart, rowEnd) -> {
+      for (int y = rowStart; y < rowEnd; y += 1) {
+        // Each later matrix works on the row the previous one just wrote, while it is still in
+        // the cache.
+        luts[0].apply(src, y * srcStride, dst, y * dstStride, width);
+        for (int i = 1; i < luts.length; i += 1) {
+          luts[i].apply(dst, y * dstStride, dst, y * dstStride, width);
+        }
+      }
+    });
+  }
+
+  @Override
+  public ArrayList<ArrayList<Pixel>> getPixels() {
+    ArrayList<ArrayList<Pixel>> pixelCopy = new ArrayList<>();
+    for (int x = 0; x < width; x += 1) {
+      ArrayList<Pixel> column = new ArrayList<>(height);
+      for (int y = 0; y < height; y += 1) {
+        column.add(ArgbUtil.toPixel(data[y * stride + x]));
+      }
+      pixelCopy.add(column);
+    }
+    return pixelCopy;
+  }
+
+  @Override
+  public Pixel getPixelAt(int x, int y) throws IllegalArgumentException {
+    return ArgbUtil.toPixel(getARGB(x, y));
+  }
+
+  @Override
+  public int getWidth() {
+    return width;
+  }
+
+  @Override
+  public int getHeight() {
+    return height;
+  }
+
+  @Override
+  public int getARGB(int x, int y) throws IllegalArgumentException {
+    if (x < 0 || x >= width || y < 0 || y >= height) {
+      throw new IllegalArgumentException("Invalid arguments");
+    }
+    return data[y * stride + x];
+  }
+
+  @Override
+  public void setARGB(int x, int y, int argb) throws IllegalArgumentException {
+    if (x < 0 || x >= width || y < 0 || y >= height) {
+      throw new IllegalArgumentException("Invalid arguments");
+    }
+    detach(true);
+    data[y * stride + x] = argb;
+  }
+
+  @Override
+  public void getRegion(int[] dst, int offset, int scan, int x, int y, int w, int h)
+      throws IllegalArgumentException {
+    checkRegion(dst, offset, scan, x, y, w, h);
+    for (int j = 0; j < h; j += 1) {
+      System.arraycopy(data, (y + j) * stride + x, dst, offset + j * scan, w);
+    }
+  }
+
+  @Override
+  public void setRegion(int[] src, int offset, int scan, int x, int y, int w, int h)
+      throws IllegalArgumentException {
+    checkRegion(src, offset, scan, x, y, w, h);
+    detach(true);
+    for (int j = 0; j < h; j += 1) {
+      System.arraycopy(src, offset + j * scan, data, (y + j) * stride + x, w);
+    }
+  }
+
+  private void checkRegion(int[] array, int offset, int scan, int x, int y, int w, int h)
+      throws IllegalArgumentException {
+    if (array == null || w < 0 || h < 0 || x < 0 || y < 0
+        || x + w > width || y + h > height || offset < 0 || scan < w) {
+      throw new IllegalArgumentException("Invalid region");
+    }
+    if (h > 0 && offset + (long) (h - 1) * scan + w > array.length) {
+      throw new IllegalArgumentException("Region does not fit in the given array");
+    }
+  }
+
+  @Override
+  public PixelCursor cursor() {
+    return new PixelCursor(this);
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    } else if (other instanceof PackedImage) {
+      PackedImage o = (PackedImage) other;
+      if (width != o.width || height != o.height) {
+        return false;
+      }
+      for (int y = 0; y < height; y += 1) {
+        for (int x = 0; x < width; x += 1) {
+          if (data[y * stride + x] != o.data[y * o.stride + x]) {
+            return false;
+          }
+        }
+      }
+      return true;
+    } else if (other instanceof Image && !(other instanceof LayeredImage)) {
+      // Images that wrap their pixels, such as lazy, mapped and deferred images, are equal to a
+      // PackedImage with the same pixels, so equality holds both ways round.
+      Image o = (Image) other;
+      if (width != o.getWidth() || height != o.getHeight()) {
+        return false;
+      }
+      int[] row = new int[width];
+      for (int y = 0; y < height; y += 1) {
+        o.getRegion(row, 0, width, 0, y, width, 1);
+        for (int x = 0; x < width; x += 1) {
+          if (data[y * stride + x] != row[x]) {
+            return false;
+          }
+        }
+      }
+      return true;
+    } else {
+      return false;
+    }
+  }
+
+  @Override
+  public int hashCode() {
+    int result = 31 * width + height;
+    for (int y = 0; y < height; y += 1) {
+      for (int x = 0; x < width; x += 1) {
+        result = 31 * result + data[y * stride + x];
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public void exportFile(String filename, FileType fileType) throws IOException {
+    if (fileType == FileType.PPM) {
+      exportPPM(filename);
+    } else if (fileType == FileType.PPM_BINARY || fileType == FileType.PGM) {
+      PpmCodec.write(this, Paths.get(filename + "." + fileType.extension()), filename, fileType);
+    } else {
+      BufferedImage output = RasterUtil.toBufferedImage(data, width, height, stride,
+          RasterUtil.imageType(fileType), null);
+      if (!ImageIO.getImageWriters(ImageTypeSpecifier.createFromRenderedImage(output),
+          fileType.toString()).hasNext()) {
+        throw new IOException("No writer for " + fileType + " files");
+      }
+      File newFile = new File(filename + "." + fileType.toString());
+      try (FileOutputStream outputStream = new FileOutputStream(newFile)) {
+        ImageIO.write(output, fileType.toString(), outputStream);
+      }
+    }
+  }
+
+  @Override
+  public void exportPPM(String filename) throws IOException {
+    PpmCodec.write(this, Paths.get(filename + ".ppm"), filename, FileType.PPM);
+  }
+
+  @Override
+  public void makeTransparent() {
+    int[] src = data;
+    int srcStride = stride;
+    detach(false);
+    int[] dst = data;
+    int dstStride = stride;
+    Parallel.forEachBand(width, height, (rowStart, rowEnd) -> {
+      for (int y = rowStart; y < rowEnd; y += 1) {
+        for (int x = 0; x < width; x += 1) {
+          dst[y * dstStride + x] = src[y * srcStride + x] & 0x00FFFFFF;
+        }
+      }
+    });
+  }
+
+  @Override
+  public BufferedImage toBufferedImage() {
+    return toBufferedImage(null);
+  }
+
+  @Override
+  public BufferedImage toBufferedImage(BufferedImage reuse) {
+    return RasterUtil.toBufferedImage(data, width, height, stride, BufferedImage.TYPE_INT_ARGB,
+        reuse);
+  }
+
+  @Override
+  public void downscale(int newWidth, int newHeight) throws IllegalArgumentException {
+    if (newWidth <= 0 || newHeight <= 0 || newWidth > width || newHeight > height) {
+      throw new IllegalArgumentException("Invalid argument");
+    }
+    resize(newWidth, newHeight, ResampleFilter.BILINEAR);
+  }
+
+  @Override
+  public void resize(int newWidth, int newHeight, ResampleFilter filter)
+      throws IllegalArgumentException {
+    if (newWidth <= 0 || newHeight <= 0) {
+      throw new IllegalArgumentException("Width and height must be positive");
+    }
+    if (filter == null) {
+      throw new IllegalArgumentException("Resample filter cannot be null");
+    }
+    setData(newWidth, newHeight,
+        Resampler.resize(data, width, height, stride, newWidth, newHeight, filter));
+  }
+
+  @Override
+  public void mosaic(int seeds) throws IllegalArgumentException {
+    if (seeds <= 0 || (long) seeds > (long) width * height) {
+      throw new IllegalArgumentException("Invalid number of seeds");
+    }
+    mosaic(seeds, new Random(), SeedPlacement.RANDOM);
+  }
+
+  @Override
+  public void mosaic(int seeds, long randomSeed, SeedPlacement placement)
+      throws IllegalArgumentException {
+    if (seeds <= 0 || (long) seeds > (long) width * height) {
+      throw new IllegalArgumentException("Invalid number of seeds");
+    }
+    if (placement == null) {
+      throw new IllegalArgumentException("Seed placement cannot be null");
+    }
+    mosaic(seeds, new Random(randomSeed), placement);
+  }
+
+  /**
+   * Applies a mosaic filter with seeds placed from the given source of randomness. Every step
+   * after placing the seeds runs in parallel, and the per-region sums are kept in integers, so
+   * the result only depends on the seeds and not on how the work is split between threads.
+   */
+  private void mosaic(int seeds, Random rand, SeedPlacement placement) {
+    int[] seedX = new int[seeds];
+    int[] seedY = new int[seeds];
+    placement.place(seeds, width, height, rand, seedX, seedY);
+
+    SeedGrid grid = new SeedGrid(seedX, seedY, width, height);
+    int[] owner = new int[width * height];
+    Parallel.forEachBand(width, height, (rowStart, rowEnd) -> {
+      for (int y = rowStart; y < rowEnd; y += 1) {
+        int seed = -1;
+        for (int x = 0; x < width; x += 1) {
+          seed = grid.nearest(x, y, seed);
+          owner[y * width + x] = seed;
+        }
+      }
+    });
+
+    // Each chunk of rows sums its pixels into its own arrays, which are then merged in chunk
+    // order. There is one chunk per thread so the partial sums stay small for many seeds.
+    int[] src = data;
+    int srcStride = stride;
+    int chunks = Math.max(1, Math.min(Parallel.getParallelism(), height));
+    long[][] partialSums = new long[chunks][];
+    int[][] partialCounts = new int[chunks][];
+    int chunkCost = width * (height / chunks);
+    Parallel.forEachBand(chunkCost, chunks, (chunkStart, chunkEnd) -> {
+      for (int c = chunkStart; c < chunkEnd; c += 1) {
+        long[] sums = new long[seeds * 3];
+        int[] counts = new int[seeds];
+        for (int y = c * height / chunks; y < (c + 1) * height / chunks; y += 1) {
+          for (int x = 0; x < width; x += 1) {
+            int seed = owner[y * width + x];
+            int argb = src[y * srcStride + x];
+            sums[seed * 3] += ArgbUtil.red(argb);
+            sums[seed * 3 + 1] += ArgbUtil.green(argb);
+            sums[seed * 3 + 2] += ArgbUtil.blue(argb);
+            counts[seed] += 1;
+          }
+        }
+        partialSums[c] = sums;
+        partialCounts[c] = counts;
+      }
+    });
+    long[] sums = partialSums[0];
+    int[] counts = partialCounts[0];
+    for (int c = 1; c < chunks; c += 1) {
+      for (int i = 0; i < sums.length; i += 1) {
+        sums[i] += partialSums[c][i];
+      }
+      for (int i = 0; i < counts.length; i += 1) {
+        counts[i] += partialCounts[c][i];
+      }
+    }
+
+    detach(false);
+    int[] dst = data;
+    int dstStride = stride;
+    Parallel.forEachBand(width, height, (rowStart, rowEnd) -> {
+      for (int y = rowStart; y < rowEnd; y += 1) {
+        for (int x = 0; x < width; x += 1) {
+          int seed = owner[y * width + x];
+          dst[y * dstStride + x] = ArgbUtil.pack(ArgbUtil.alpha(src[y * srcStride + x]),
+              (int) (sums[seed * 3] / counts[seed]),
+              (int) (sums[seed * 3 + 1] / counts[seed]),
+              (int) (sums[seed * 3 + 2] / counts[seed]));
+        }
+      }
+    });
+  }
+}
@@ -0,0 +1,145 @@
+package model.image;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs per-pixel image operations in parallel by splitting the image into bands of rows and
+ * processing the bands on a shared {@link ForkJoinPool}.
+ *
+ * <p>Every operation run through this class computes each output pixel from a source that is not
+ * written to during the operation, so bands can read rows outside of themselves (such as the halo
+ * rows a convolution needs above and below a band) without any coordination, and the result is
+ * identical to processing the rows one after another on a single thread.
+ *
+ * <p>The number of threads defaults to the number of available processors and can be changed
+ * with the {@code image.parallelism} system property or {@link #setParallelism(int)}.
+ */
+public final class Parallel {
+
+  /**
+   * The least amount of work, in pixels, given to a band, so that bands are worth the cost of
+   * scheduling them.
+   */
+  private static final int MIN_COST_PER_BAND = 1 << 14;
+
+  private static ForkJoinPool pool = createPool(
+      Integer.getInteger("image.parallelism", Runtime.getRuntime().availableProcessors()));
+
+  private Parallel() {
+  }
+
+  /**
+   * Represents work to be done on a band of rows.
+   */
+  @FunctionalInterface
+  interface RowBand {
+
+    /**
+     * Processes the rows in [rowStart, rowEnd).
+     *
+     * @param rowStart the first row of the band
+     * @param rowEnd   the row after the last row of the band
+     */
+    void run(int rowStart, int rowEnd);
+  }
+
+  /**
+   * Sets the number of threads used by image operations. Work already running on the old
+   * threads finishes there, and work that was about to start moves to the new ones.
+   *
+   * @param parallelism the number of threads to be used
+   * @throws IllegalArgumentException if parallelism is less than 1
+   */
+  public static synchronized void setParallelism(int parallelism)
+      throws IllegalArgumentException {
+    ForkJoinPool old = pool;
+    pool = createPool(parallelism);
+    old.shutdown();
+  }
+
+  /**
+   * Gets the number of threads used by image operations.
+   *
+   * @return the number of threads used
+   */
+  public static synchronized int getParallelism() {
+    return pool.getParallelism();
+  }
+
+  private static ForkJoinPool createPool(int parallelism) throws IllegalArgumentException {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism must be at least 1");
+    }
+    return new ForkJoinPool(parallelism);
+  }
+
+  /**
+   * Splits the rows [0, rows) into bands and runs the given work on each band, returning once
+   * every band is done. Bands are sized from the cost of a single row, which is the number of
+   * pixels, or pixel-sized steps, processed for it: the width of the image when each row is a row
+   * of pixels, or more when a row stands for a group of rows or does more work per pixel. Work
+   * too small to be worth splitting and a parallelism of 1 run on the calling thread.
+   *
+   * @param rowCost the approximate number of pixels processed for each row
+   * @param rows    the number of rows to be processed
+   * @param work    the work to be done on each band
+   */
+  static void forEachBand(int rowCost, int rows, RowBand work) {
+    ForkJoinPool current = currentPool();
+    while (true) {
+      int parallelism = current.getParallelism();
+      int minRows = Math.max(1, MIN_COST_PER_BAND / Math.max(1, rowCost));
+      if (parallelism == 1 || rows <= minRows) {
+        work.run(0, rows);
+        return;
+      }
+      int bandRows = Math.max(minRows, (rows + parallelism * 4 - 1) / (parallelism * 4));
+      try {
+        current.invoke(new BandTask(work, 0, rows, bandRows));
+        return;
+      } catch (RejectedExecutionException e) {
+        // The pool was replaced and shut down before the work reached it, so none of the work
+        // has run and all of it is given to the new pool.
+        ForkJoinPool replacement = currentPool();
+        if (replacement == current) {
+          throw e;
+        }
+        current = replacement;
+      }
+    }
+  }
+
+  private static synchronized ForkJoinPool currentPool() {
+    return pool;
+  }
+
+  private static final class BandTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final RowBand work;
+    private final int rowStart;
+    private final int rowEnd;
+    private final int bandRows;
+
+    BandTask(RowBand work, int rowStart, int rowEnd, int bandRows) {
+      this.work = work;
+      this.rowStart = rowStart;
+      this.rowEnd = rowEnd;
+      this.bandRows = bandRows;
+    }
+
+    @Override
+    protected void compute() {
+      if (rowEnd - rowStart <= bandRows) {
+        work.run(rowStart, rowEnd);
+        return;
+      }
+      int mid = rowStart + (rowEnd - rowStart) / 2;
+      invokeAll(new BandTask(work, rowStart, mid, bandRows),
+          new BandTask(work, mid, rowEnd, bandRows));
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package model.image;
+
+/**
+ * Pixel storage that can be shared between several {@link PackedImage} objects. Images that share
+ * a buffer may read from it freely, but must detach from it before writing so that the other
+ * images are unaffected.
+ *
+ * <p>A buffer also holds the summed-area table and histogram of its pixels once they have been
+ * built, so that every image sharing the buffer can use them. An image that writes to a buffer it
+ * does not share must drop them first with {@link #clearStatistics()}.
+ */
+final class PixelBuffer {
+
+  final int[] data;
+  volatile IntegralImage integral;
+  volatile Histogram histogram;
+  private volatile int shares;
+
+  /**
+   * Creates a new {@code PixelBuffer} owned by a single image.
+   *
+   * @param data the packed ARGB values held by this buffer
+   */
+  PixelBuffer(int[] data) {
+    this.data = data;
+    this.shares = 1;
+  }
+
+  /**
+   * Records that another image now refers to this buffer.
+   *
+   * @return this buffer
+   */
+  synchronized PixelBuffer share() {
+    shares += 1;
+    return this;
+  }
+
+  /**
+   * Records that an image no longer refers to this buffer.
+   */
+  synchronized void release() {
+    if (shares > 0) {
+      shares -= 1;
+    }
+  }
+
+  /**
+   * Gets whether more than one image refers to this buffer. This is checked before every write,
+   * so it only reads the share count without locking.
+   *
+   * @return true if this buffer must not be written to in place
+   */
+  boolean isShared() {
+    return shares > 1;
+  }
+
+  /**
+   * Drops the statistics kept for the pixels of this buffer, which must be done before they are
+   * written to.
+   */
+  void clearStatistics() {
+    if (integral != null) {
+      integral = null;
+    }
+    if (histogram != null) {
+      histogram = null;
+    }
+  }
+}
@@ -0,0 +1,153 @@
+package model.image;
+
+import model.pixel.ArgbUtil;
+
+/**
+ * A reusable cursor that scans over the pixels of a {@link PackedImage} row by row, reading and
+ * writing packed ARGB values without allocating any objects per pixel. If the image shares its
+ * storage with a copy when a pixel is written, including copies made after the cursor was
+ * created, the image first moves to storage of its own.
+ *
+ * <p>A cursor starts positioned before the first pixel, so {@link #next()} must be called before
+ * the first pixel can be accessed:
+ * <pre>
+ *   PixelCursor cursor = image.cursor();
+ *   while (cursor.next()) {
+ *     cursor.setARGB(cursor.getARGB() &amp; 0x00FFFFFF);
+ *   }
+ * </pre>
+ */
+public final class PixelCursor {
+
+  private final PackedImage image;
+  private final int width;
+  private final int height;
+  private int[] data;
+  private int stride;
+  private int x;
+  private int y;
+  private int index;
+
+  /**
+   * Creates a new {@code PixelCursor} over the pixels of the given image.
+   *
+   * @param image the image to be scanned
+   */
+  PixelCursor(PackedImage image) {
+    this.image = image;
+    this.data = image.data;
+    this.width = image.width;
+    this.height = image.height;
+    this.stride = image.stride;
+    reset();
+  }
+
+  /**
+   * Moves this cursor back to before the first pixel so that the image can be scanned again.
+   */
+  public void reset() {
+    this.x = -1;
+    this.y = 0;
+    this.index = -1;
+  }
+
+  /**
+   * Advances this cursor to the next pixel.
+   *
+   * @return true if the cursor is now on a pixel, or false if every pixel has been visited
+   */
+  public boolean next() {
+    if (width == 0 || y >= height) {
+      return false;
+    }
+    x += 1;
+    if (x == width) {
+      x = 0;
+      y += 1;
+      if (y == height) {
+        return false;
+      }
+    }
+    index = y * stride + x;
+    return true;
+  }
+
+  /**
+   * Gets the x-coordinate of the pixel this cursor is on.
+   *
+   * @return the current x-coordinate
+   */
+  public int getX() {
+    return x;
+  }
+
+  /**
+   * Gets the y-coordinate of the pixel this cursor is on.
+   *
+   * @return the current y-coordinate
+   */
+  public int getY() {
+    return y;
+  }
+
+  /**
+   * Gets the packed ARGB value of the pixel this cursor is on.
+   *
+   * @return the current packed ARGB value
+   */
+  public int getARGB() {
+    return data[index];
+  }
+
+  /**
+   * Sets the packed ARGB value of the pixel this cursor is on.
+   *
+   * @param argb the packed ARGB value to be set
+   */
+  public void setARGB(int argb) {
+    // The image may have been copied since the last write, so sharing is checked every time.
+    image.detach(true);
+    if (image.data != data) {
+      data = image.data;
+      stride = image.stride;
+      index = y * stride + x;
+    }
+    data[index] = argb;
+  }
+
+  /**
+   * Gets the red value of the pixel this cursor is on.
+   *
+   * @return the current red value
+   */
+  public int getRed() {
+    return ArgbUtil.red(data[index]);
+  }
+
+  /**
+   * Gets the green value of the pixel this cursor is on.
+   *
+   * @return the current green value
+   */
+  public int getGreen() {
+    return ArgbUtil.green(data[index]);
+  }
+
+  /**
+   * Gets the blue value of the pixel this cursor is on.
+   *
+   * @return the current blue value
+   */
+  public int getBlue() {
+    return ArgbUtil.blue(data[index]);
+  }
+
+  /**
+   * Gets the alpha value of the pixel this cursor is on.
+   *
+   * @return the current alpha value
+   */
+  public int getAlpha() {
+    return ArgbUtil.alpha(data[index]);
+  }
+}
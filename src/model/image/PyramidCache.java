@@ -0,0 +1,124 @@
+package model.image;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A cache of the levels of every {@link ImagePyramid}, shared so that all pyramids together stay
+ * within one memory budget. Levels are weighed by the size of their pixels, and the least
+ * recently used levels are evicted first once the budget is exceeded. An evicted level is simply
+ * computed again the next time it is needed.
+ *
+ * <p>The budget defaults to 64 MiB and can be changed with the {@code image.pyramidCacheBytes}
+ * system property or {@link ImagePyramid#setCacheCapacity(long)}.
+ */
+final class PyramidCache {
+
+  private static final Map<Key, Image> levels = new LinkedHashMap<>(16, 0.75f, true);
+  private static long capacity = Long.getLong("image.pyramidCacheBytes", 64L << 20);
+  private static long size;
+
+  private PyramidCache() {
+  }
+
+  /**
+   * Identifies one level of one pyramid. Pyramids are identified by number rather than held, so
+   * that cached levels never keep a full resolution image alive after its pyramid is dropped.
+   */
+  private static final class Key {
+
+    private final long pyramid;
+    private final int level;
+
+    Key(long pyramid, int level) {
+      this.pyramid = pyramid;
+      this.level = level;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof Key)) {
+        return false;
+      }
+      Key o = (Key) other;
+      return pyramid == o.pyramid && level == o.level;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(pyramid, level);
+    }
+  }
+
+  /**
+   * Gets a cached level, marking it as the most recently used.
+   *
+   * @param pyramid the number of the pyramid the level belongs to
+   * @param level   the level to be looked up
+   * @return the cached image of the level, or null if it is not cached
+   */
+  static synchronized Image get(long pyramid, int level) {
+    return levels.get(new Key(pyramid, level));
+  }
+
+  /**
+   * Caches a level, evicting the least recently used levels until the cache is within its budget.
+   * A level larger than the whole budget is not cached.
+   *
+   * @param pyramid the number of the pyramid the level belongs to
+   * @param level   the level to be cached
+   * @param image   the image of the level
+   */
+  static synchronized void put(long pyramid, int level, Image image) {
+    long bytes = bytes(image);
+    if (bytes > capacity) {
+      return;
+    }
+    Image old = levels.put(new Key(pyramid, level), image);
+    if (old != null) {
+      size -= bytes(old);
+    }
+    size += bytes;
+    evict();
+  }
+
+  /**
+   * Removes every level of the given pyramid from the cache.
+   *
+   * @param pyramid the number of the pyramid whose levels are removed
+   */
+  static synchronized void removeAll(long pyramid) {
+    Iterator<Map.Entry<Key, Image>> it = levels.entrySet().iterator();
+    while (it.hasNext()) {
+      Map.Entry<Key, Image> entry = it.next();
+      if (entry.getKey().pyramid == pyramid) {
+        size -= bytes(entry.getValue());
+        it.remove();
+      }
+    }
+  }
+
+  /**
+   * Sets the most memory the cached levels may use, evicting levels if they now use more.
+   *
+   * @param bytes the budget in bytes
+   */
+  static synchronized void setCapacity(long bytes) {
+    capacity = bytes;
+    evict();
+  }
+
+  private static void evict() {
+    Iterator<Image> it = levels.values().iterator();
+    while (size > capacity && it.hasNext()) {
+      size -= bytes(it.next());
+      it.remove();
+    }
+  }
+
+  private static long bytes(Image image) {
+    return (long) image.getWidth() * image.getHeight() * Integer.BYTES;
+  }
+}
@@ -0,0 +1,259 @@
+package model.image;
+
+import controller.FileType;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.IndexColorModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import model.pixel.ArgbUtil;
+
+/**
+ * A utility class for moving pixels between {@link BufferedImage}s and packed ARGB arrays in bulk.
+ *
+ * <p>Asking a {@code BufferedImage} for the color of each pixel converts the pixel through its
+ * color model one at a time, which costs far more than decoding most files. The common image
+ * types are instead read straight from the arrays behind their rasters: packed int pixels are
+ * copied, interleaved bytes are packed together, and grey and indexed pixels are looked up in a
+ * table of every color they can have, built from the image's own color model so the result is
+ * exactly what the color model would give. Other images are converted by the color model a band
+ * of rows at a time.
+ *
+ * <p>Going the other way, pixels are written straight into the array behind a new or reused
+ * {@code BufferedImage} of the type each file type is best written from.
+ */
+public final class RasterUtil {
+
+  /**
+   * The number of rows converted at a time by the color model of images without a faster path.
+   */
+  private static final int GENERIC_BAND_ROWS = 64;
+
+  private RasterUtil() {
+  }
+
+  /**
+   * Creates an image holding the pixels of the given {@code BufferedImage}, with the same colors
+   * that {@link BufferedImage#getRGB(int, int)} gives for each of them.
+   *
+   * @param image the image to be copied
+   * @return a new image holding the pixels of image
+   * @throws IllegalArgumentException if image is null
+   */
+  public static PackedImage fromBufferedImage(BufferedImage image)
+      throws IllegalArgumentException {
+    if (image == null) {
+      throw new IllegalArgumentException("Image cannot be null");
+    }
+    int width = image.getWidth();
+    int height = image.getHeight();
+    int[] dst = new int[width * height];
+    switch (image.getType()) {
+      case BufferedImage.TYPE_INT_ARGB:
+        readPacked(image, dst, 0);
+        break;
+      case BufferedImage.TYPE_INT_RGB:
+        readPacked(image, dst, 0xFF000000);
+        break;
+      case BufferedImage.TYPE_3BYTE_BGR:
+      case BufferedImage.TYPE_4BYTE_ABGR:
+        readInterleaved(image, dst);
+        break;
+      case BufferedImage.TYPE_BYTE_GRAY:
+      case BufferedImage.TYPE_BYTE_INDEXED:
+        readLookup(image, dst);
+        break;
+      default:
+        if (image.getColorModel() instanceof IndexColorModel) {
+          readIndexed(image, dst);
+        } else {
+          readGeneric(image, dst);
+        }
+    }
+    return new PackedImage(width, height, width, dst);
+  }
+
+  /**
+   * Gets the index in the data buffer of the given raster of band 0 of the first pixel of row y.
+   */
+  private static int rowStart(WritableRaster raster, int y) {
+    int x = -raster.getSampleModelTranslateX();
+    int row = y - raster.getSampleModelTranslateY();
+    int offset = raster.getDataBuffer().getOffset();
+    if (raster.getSampleModel() instanceof SinglePixelPackedSampleModel) {
+      return offset + ((SinglePixelPackedSampleModel) raster.getSampleModel()).getOffset(x, row);
+    }
+    return offset + ((ComponentSampleModel) raster.getSampleModel()).getOffset(x, row, 0);
+  }
+
+  private static void readPacked(BufferedImage image, int[] dst, int opaque) {
+    WritableRaster raster = image.getRaster();
+    int[] src = ((DataBufferInt) raster.getDataBuffer()).getData();
+    int width = image.getWidth();
+    Parallel.forEachBand(width, image.getHeight(), (rowStart, rowEnd) -> {
+      for (int y = rowStart; y < rowEnd; y += 1) {
+        int row = rowStart(raster, y);
+        for (int x = 0; x < width; x += 1) {
+          dst[y * width + x] = src[row + x] | opaque;
+        }
+      }
+    });
+  }
+
+  private static void readInterleaved(BufferedImage image, int[] dst) {
+    WritableRaster raster = image.getRaster();
+    ComponentSampleModel model = (ComponentSampleModel) raster.getSampleModel();
+    byte[] src = ((DataBufferByte) raster.getDataBuffer()).getData();
+    int[] bands = model.getBandOffsets();
+    int step = model.getPixelStride();
+    // Offsets are relative to band 0, which rowStart points at.
+    int red = 0;
+    int green = bands[1] - bands[0];
+    int blue = bands[2] - bands[0];
+    boolean opaque = bands.length < 4;
+    int alpha = opaque ? 0 : bands[3] - bands[0];
+    int width = image.getWidth();
+    Parallel.forEachBand(width, image.getHeight(), (rowStart, rowEnd) -> {
+      for (int y = rowStart; y < rowEnd; y += 1) {
+        int i = rowStart(raster, y);
+        for (int x = 0; x < width; x += 1, i += step) {
+          int a = opaque ? 0xFF : src[i + alpha] & 0xFF;
+          dst[y * width + x] = (a << 24) | ((src[i + red] & 0xFF) << 16)
+              | ((src[i + green] & 0xFF) << 8) | (src[i + blue] & 0xFF);
+        }
+      }
+    });
+  }
+
+  private static void readLookup(BufferedImage image, int[] dst) {
+    ColorModel colorModel = image.getColorModel();
+    int[] table = new int[256];
+    byte[] value = new byte[1];
+    for (int v = 0; v < 256; v += 1) {
+      value[0] = (byte) v;
+      table[v] = colorModel.getRGB(value);
+    }
+    WritableRaster raster = image.getRaster();
+    byte[] src = ((DataBufferByte) raster.getDataBuffer()).getData();
+    int step = ((ComponentSampleModel) raster.getSampleModel()).getPixelStride();
+    int width = image.getWidth();
+    Parallel.forEachBand(width, image.getHeight(), (rowStart, rowEnd) -> {
+      for (int y = rowStart; y < rowEnd; y += 1) {
+        int i = rowStart(raster, y);
+        for (int x = 0; x < width; x += 1, i += step) {
+          dst[y * width + x] = table[src[i] & 0xFF];
+        }
+      }
+    });
+  }
+
+  /**
+   * Reads indexed images whose indices are not one per byte, such as those packing several
+   * pixels into each byte, by reading a row of indices at a time from the raster.
+   */
+  private static void readIndexed(BufferedImage image, int[] dst) {
+    IndexColorModel colorModel = (IndexColorModel) image.getColorModel();
+    int[] table = new int[1 << image.getSampleModel().getSampleSize(0)];
+    for (int v = 0; v < table.length; v += 1) {
+      table[v] = colorModel.getRGB(v);
+    }
+    WritableRaster raster = image.getRaster();
+    int width = image.getWidth();
+    Parallel.forEachBand(width, image.getHeight(), (rowStart, rowEnd) -> {
+      int[] row = new int[width];
+      for (int y = rowStart; y < rowEnd; y += 1) {
+        raster.getSamples(0, y, width, 1, 0, row);
+        for (int x = 0; x < width; x += 1) {
+          dst[y * width + x] = table[row[x]];
+        }
+      }
+    });
+  }
+
+  /**
+   * Reads any other image through its color model, which is not safe to share between threads
+   * for every kind of color space, so bands of rows are converted one after another.
+   */
+  private static void readGeneric(BufferedImage image, int[] dst) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    for (int y = 0; y < height; y += GENERIC_BAND_ROWS) {
+      int rows = Math.min(GENERIC_BAND_ROWS, height - y);
+      image.getRGB(0, y, width, rows, dst, y * width, width);
+    }
+  }
+
+  /**
+   * Gets the type of {@code BufferedImage} that files of the given type are written from. JPEG
+   * and BMP files cannot hold alpha and are written without it, WBMP files hold one bit per pixel,
+   * and every other type keeps alpha.
+   *
+   * @param fileType the type of file to be written
+   * @return the {@code BufferedImage} type to write it from
+   */
+  static int imageType(FileType fileType) {
+    switch (fileType) {
+      case JPG:
+      case JPEG:
+      case BMP:
+        return BufferedImage.TYPE_INT_RGB;
+      case WBMP:
+        return BufferedImage.TYPE_BYTE_BINARY;
+      default:
+        return BufferedImage.TYPE_INT_ARGB;
+    }
+  }
+
+  /**
+   * Writes packed ARGB pixels into a {@code BufferedImage} of the given type, which is one of
+   * TYPE_INT_ARGB, TYPE_INT_RGB and TYPE_BYTE_BINARY. For TYPE_BYTE_BINARY, pixels whose
+   * luminance is at least 128 become white and the rest black.
+   *
+   * @param src    the packed ARGB values of the image
+   * @param width  the width of the image
+   * @param height the height of the image
+   * @param stride the distance in src between the start of one row and the next
+   * @param type   the type of the {@code BufferedImage}
+   * @param reuse  an image that is written to instead of a new one if it has the same size and
+   *               type, or null
+   * @return the image the pixels were written to
+   */
+  static BufferedImage toBufferedImage(int[] src, int width, int height, int stride, int type,
+      BufferedImage reuse) {
+    BufferedImage output = reuse;
+    if (output == null || output.getWidth() != width || output.getHeight() != height
+        || output.getType() != type) {
+      output = new BufferedImage(width, height, type);
+    }
+    WritableRaster raster = output.getRaster();
+    if (type == BufferedImage.TYPE_BYTE_BINARY) {
+      byte[] dst = ((DataBufferByte) raster.getDataBuffer()).getData();
+      int scan = (width + 7) / 8;
+      Parallel.forEachBand(width, height, (rowStart, rowEnd) -> {
+        for (int y = rowStart; y < rowEnd; y += 1) {
+          for (int i = 0; i < scan; i += 1) {
+            int bits = 0;
+            for (int x = i * 8; x < Math.min(width, i * 8 + 8); x += 1) {
+              if (ArgbUtil.luminance(src[y * stride + x]) >= 128) {
+                bits |= 0x80 >> (x - i * 8);
+              }
+            }
+            dst[y * scan + i] = (byte) bits;
+          }
+        }
+      });
+    } else {
+      // The alpha bits of TYPE_INT_RGB are ignored, so both types are plain copies.
+      int[] dst = ((DataBufferInt) raster.getDataBuffer()).getData();
+      Parallel.forEachBand(width, height, (rowStart, rowEnd) -> {
+        for (int y = rowStart; y < rowEnd; y += 1) {
+          System.arraycopy(src, y * stride, dst, y * width, width);
+        }
+      });
+    }
+    return output;
+  }
+}
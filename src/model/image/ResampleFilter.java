@@ -0,0 +1,102 @@
+package model.image;
+
+/**
+ * Enumeration for the filters an image can be resized with, from the fastest and blockiest to the
+ * slowest and sharpest.
+ */
+public enum ResampleFilter {
+  /**
+   * Every pixel takes the value of the source pixel it falls on.
+   */
+  NEAREST,
+  /**
+   * Pixels are interpolated linearly between the nearest two source pixels along each axis.
+   */
+  BILINEAR,
+  /**
+   * Pixels are interpolated with a cubic curve through the nearest four source pixels along each
+   * axis, which is sharper than bilinear but can overshoot slightly at edges.
+   */
+  BICUBIC,
+  /**
+   * Pixels are interpolated with a windowed sinc over the nearest six source pixels along each
+   * axis, which keeps the most detail but rings the most at edges.
+   */
+  LANCZOS3,
+  /**
+   * Every pixel is the average of the source pixels it covers, each weighted by how much of it is
+   * covered, which suits shrinking an image by large amounts.
+   */
+  AREA;
+
+  /**
+   * Gets how far from its center this filter reaches, in source pixels at a scale of one.
+   *
+   * @return the support radius of this filter
+   */
+  double support() {
+    switch (this) {
+      case BILINEAR:
+        return 1;
+      case BICUBIC:
+        return 2;
+      case LANCZOS3:
+        return 3;
+      default:
+        return 0.5;
+    }
+  }
+
+  /**
+   * Gets the weight of this filter at the given distance from its center, at a scale of one.
+   *
+   * @param x the distance from the center of the filter
+   * @return the weight of the filter at x
+   */
+  double weight(double x) {
+    x = Math.abs(x);
+    switch (this) {
+      case BILINEAR:
+        return x < 1 ? 1 - x : 0;
+      case BICUBIC:
+        // The Keys cubic with a = -0.5, which reproduces the source at integer positions.
+        if (x < 1) {
+          return (1.5 * x - 2.5) * x * x + 1;
+        } else if (x < 2) {
+          return ((-0.5 * x + 2.5) * x - 4) * x + 2;
+        }
+        return 0;
+      case LANCZOS3:
+        return x < 3 ? sinc(x) * sinc(x / 3) : 0;
+      default:
+        return x < 0.5 ? 1 : 0;
+    }
+  }
+
+  private static double sinc(double x) {
+    if (x == 0) {
+      return 1;
+    }
+    x *= Math.PI;
+    return Math.sin(x) / x;
+  }
+
+  @Override
+  public String toString() {
+    switch (this) {
+      case NEAREST:
+        return "nearest";
+      case BILINEAR:
+        return "bilinear";
+      case BICUBIC:
+        return "bicubic";
+      case LANCZOS3:
+        return "lanczos3";
+      case AREA:
+        return "area";
+      default:
+        break;
+    }
+    return "";
+  }
+}
@@ -0,0 +1,263 @@
+package model.image;
+
+import java.util.Arrays;
+import model.pixel.ArgbUtil;
+
+/**
+ * Resizes packed ARGB pixels with a {@link ResampleFilter} in two separable passes, one along
+ * each axis, so each output pixel costs a few taps per axis rather than the product of the two.
+ *
+ * <p>Every output column of a pass reads the same source positions with the same weights in every
+ * row, so the positions and weights are computed once per output column or row into a table of
+ * fixed point weights that sum to exactly one. When shrinking, the filter is stretched to cover
+ * every source pixel that falls in an output pixel, so detail is averaged rather than skipped. All
+ * four channels, alpha included, are filtered alike.
+ *
+ * <p>Weights have as many fractional bits as the sums of an axis can hold without overflowing an
+ * int, at least 14 and up to 22, so the weights of even very large shrinks stay nonzero. Each
+ * weight is rounded from the running total of the weights before it, which keeps every weight
+ * within one unit of its exact value while still making them sum to exactly one.
+ *
+ * <p>The passes run in whichever order does less work, and an axis whose size does not change is
+ * skipped, since every filter leaves pixels in place at a scale of one. Rows of each pass are
+ * processed in parallel through {@link Parallel}.
+ */
+final class Resampler {
+
+  private static final int MIN_SHIFT = 14;
+  private static final int MAX_SHIFT = 22;
+
+  private Resampler() {
+  }
+
+  /**
+   * Resizes the given pixels.
+   *
+   * @param src       the packed ARGB values to be resized
+   * @param width     the width of the image
+   * @param height    the height of the image
+   * @param stride    the distance in src between the start of one row and the next
+   * @param newWidth  the width of the resized image
+   * @param newHeight the height of the resized image
+   * @param filter    the filter to resize with
+   * @return a new tightly packed array holding the resized image
+   */
+  static int[] resize(int[] src, int width, int height, int stride, int newWidth, int newHeight,
+      ResampleFilter filter) {
+    Weights columns = width == newWidth ? null : new Weights(width, newWidth, filter);
+    Weights rows = height == newHeight ? null : new Weights(height, newHeight, filter);
+    if (columns == null && rows == null) {
+      int[] result = new int[newWidth * newHeight];
+      for (int y = 0; y < height; y += 1) {
+        System.arraycopy(src, y * stride, result, y * newWidth, width);
+      }
+      return result;
+    } else if (rows == null) {
+      return horizontal(src, stride, height, columns);
+    } else if (columns == null) {
+      return vertical(src, stride, width, rows);
+    }
+    long horizontalFirst = (long) height * newWidth * columns.taps
+        + (long) newWidth * newHeight * rows.taps;
+    long verticalFirst = (long) width * newHeight * rows.taps
+        + (long) newWidth * newHeight * columns.taps;
+    if (horizontalFirst <= verticalFirst) {
+      return vertical(horizontal(src, stride, height, columns), newWidth, newWidth, rows);
+    } else {
+      return horizontal(vertical(src, stride, width, rows), width, newHeight, columns);
+    }
+  }
+
+  /**
+   * Resamples every row of the given pixels to the output width of the given table.
+   */
+  private static int[] horizontal(int[] src, int stride, int height, Weights columns) {
+    int newWidth = columns.outSize;
+    int taps = columns.taps;
+    int shift = columns.shift;
+    int half = 1 << (shift - 1);
+    int[] dst = new int[newWidth * height];
+    Parallel.forEachBand(newWidth * taps, height, (rowStart, rowEnd) -> {
+      for (int y = rowStart; y < rowEnd; y += 1) {
+        int row = y * stride;
+        for (int x = 0; x < newWidth; x += 1) {
+          int start = row + columns.start[x];
+          int w = x * taps;
+          int a = half;
+          int r = half;
+          int g = half;
+          int b = half;
+          for (int k = 0; k < taps; k += 1) {
+            int weight = columns.weights[w + k];
+            int argb = src[start + k];
+            a += (argb >>> 24) * weight;
+            r += ((argb >> 16) & 0xFF) * weight;
+            g += ((argb >> 8) & 0xFF) * weight;
+            b += (argb & 0xFF) * weight;
+          }
+          dst[y * newWidth + x] = pack(a, r, g, b, shift);
+        }
+      }
+    });
+    return dst;
+  }
+
+  /**
+   * Resamples every column of the given pixels to the output height of the given table. Each
+   * output row is built up one source row at a time so that rows are read in order.
+   */
+  private static int[] vertical(int[] src, int stride, int width, Weights rows) {
+    int newHeight = rows.outSize;
+    int taps = rows.taps;
+    int shift = rows.shift;
+    int half = 1 << (shift - 1);
+    int[] dst = new int[width * newHeight];
+    Parallel.forEachBand(width * taps, newHeight, (rowStart, rowEnd) -> {
+      int[] sums = new int[width * 4];
+      for (int y = rowStart; y < rowEnd; y += 1) {
+        Arrays.fill(sums, half);
+        for (int k = 0; k < taps; k += 1) {
+          int weight = rows.weights[y * taps + k];
+          if (weight == 0) {
+            continue;
+          }
+          int row = (rows.start[y] + k) * stride;
+          for (int x = 0; x < width; x += 1) {
+            int argb = src[row + x];
+            sums[x * 4] += (argb >>> 24) * weight;
+            sums[x * 4 + 1] += ((argb >> 16) & 0xFF) * weight;
+            sums[x * 4 + 2] += ((argb >> 8) & 0xFF) * weight;
+            sums[x * 4 + 3] += (argb & 0xFF) * weight;
+          }
+        }
+        for (int x = 0; x < width; x += 1) {
+          dst[y * width + x] = pack(sums[x * 4], sums[x * 4 + 1], sums[x * 4 + 2],
+              sums[x * 4 + 3], shift);
+        }
+      }
+    });
+    return dst;
+  }
+
+  private static int pack(int a, int r, int g, int b, int shift) {
+    return ArgbUtil.pack(ArgbUtil.clamp(a >> shift), ArgbUtil.clamp(r >> shift),
+        ArgbUtil.clamp(g >> shift), ArgbUtil.clamp(b >> shift));
+  }
+
+  /**
+   * The source positions and fixed point weights that every output position along one axis is
+   * computed from. Every output position reads the same number of taps, starting at its own
+   * position, with unused taps weighted zero.
+   */
+  private static final class Weights {
+
+    final int outSize;
+    final int taps;
+    final int shift;
+    final int[] start;
+    final int[] weights;
+
+    /**
+     * Computes the weights for resampling an axis of the given size to the given size.
+     *
+     * @param inSize  the size of the axis in the source
+     * @param outSize the size of the axis in the result
+     * @param filter  the filter to resample with
+     */
+    Weights(int inSize, int outSize, ResampleFilter filter) {
+      this.outSize = outSize;
+      double scale = (double) inSize / outSize;
+      double filterScale = Math.max(1, scale);
+      double support = filter == ResampleFilter.AREA
+          ? scale / 2 + 1 : filter.support() * filterScale;
+      int maxTaps = (int) Math.ceil(2 * support) + 2;
+      double[] exact = new double[outSize * maxTaps];
+      int[] first = new int[outSize];
+      int[] count = new int[outSize];
+      for (int i = 0; i < outSize; i += 1) {
+        double center = (i + 0.5) * scale;
+        if (filter == ResampleFilter.NEAREST) {
+          first[i] = Math.min(inSize - 1, (int) center);
+          count[i] = 1;
+          exact[i * maxTaps] = 1;
+          continue;
+        }
+        int lo = Math.max(0, (int) Math.floor(center - support));
+        int hi = Math.min(inSize, (int) Math.ceil(center + support) + 1);
+        double total = 0;
+        for (int x = lo; x < hi; x += 1) {
+          double w;
+          if (filter == ResampleFilter.AREA) {
+            w = Math.max(0, Math.min(x + 1, (i + 1) * scale) - Math.max(x, i * scale));
+          } else {
+            w = filter.weight((x + 0.5 - center) / filterScale);
+          }
+          exact[i * maxTaps + x - lo] = w;
+          total += w;
+        }
+        // Source pixels the filter only just reaches have no weight and are not read.
+        int skip = 0;
+        while (exact[i * maxTaps + skip] == 0) {
+          skip += 1;
+        }
+        while (exact[i * maxTaps + hi - lo - 1] == 0) {
+          hi -= 1;
+        }
+        first[i] = lo + skip;
+        count[i] = hi - lo - skip;
+        for (int k = 0; k < count[i]; k += 1) {
+          exact[i * maxTaps + k] = exact[i * maxTaps + k + skip] / total;
+        }
+      }
+
+      // Every output reads as many taps as the widest one, shifted back from the end of the axis
+      // where needed.
+      int widest = 1;
+      for (int i = 0; i < outSize; i += 1) {
+        widest = Math.max(widest, count[i]);
+      }
+      this.taps = widest;
+      this.start = new int[outSize];
+      this.weights = new int[outSize * taps];
+      for (int i = 0; i < outSize; i += 1) {
+        start[i] = Math.min(first[i], inSize - taps);
+      }
+
+      // A sum can reach 255 times the sum of the absolute weights of its row, plus the half added
+      // for rounding, so the widest fixed point that keeps that within an int is used.
+      int bits = MAX_SHIFT;
+      while (255 * round(exact, maxTaps, first, count, bits) + (1L << bits) >= Integer.MAX_VALUE
+          && bits > MIN_SHIFT) {
+        bits -= 1;
+      }
+      this.shift = bits;
+    }
+
+    /**
+     * Rounds the exact weights of every row to fixed point with the given number of fractional
+     * bits. Rounding the running total of each row makes its weights sum to exactly one, which
+     * keeps flat areas exactly flat.
+     *
+     * @return the largest sum of the absolute weights of a row
+     */
+    private long round(double[] exact, int maxTaps, int[] first, int[] count, int bits) {
+      double one = 1L << bits;
+      long largest = 0;
+      for (int i = 0; i < outSize; i += 1) {
+        int offset = i * taps + first[i] - start[i];
+        double total = 0;
+        long previous = 0;
+        long sum = 0;
+        for (int k = 0; k < count[i]; k += 1) {
+          total += exact[i * maxTaps + k];
+          long rounded = k == count[i] - 1 ? 1L << bits : Math.round(total * one);
+          weights[offset + k] = (int) (rounded - previous);
+          sum += Math.abs(rounded - previous);
+          previous = rounded;
+        }
+        largest = Math.max(largest, sum);
+      }
+      return largest;
+    }
+  }
+}
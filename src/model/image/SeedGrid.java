@@ -0,0 +1,126 @@
+package model.image;
+
+/**
+ * A uniform grid over the seeds of a mosaic that finds the seed nearest to a pixel without looking
+ * at every seed. Each cell lists the seeds inside it, and a search visits cells in growing rings
+ * around the pixel until no unvisited cell can hold a seed as close as the best one found.
+ *
+ * <p>Cells are sized so that each holds a couple of seeds on average, which keeps a search to a
+ * few dozen distance computations however many seeds there are. Distances are compared as exact
+ * squared integers, and ties go to the seed with the lowest index, so the result is the same as
+ * checking every seed in order.
+ */
+final class SeedGrid {
+
+  private static final int SEEDS_PER_CELL = 2;
+
+  private final int[] seedX;
+  private final int[] seedY;
+  private final int cellSize;
+  private final int columns;
+  private final int rows;
+  private final int[] cellStart;
+  private final int[] cellSeeds;
+
+  /**
+   * Builds a grid over the given seeds.
+   *
+   * @param seedX  the x-coordinate of each seed
+   * @param seedY  the y-coordinate of each seed
+   * @param width  the width of the image the seeds are in
+   * @param height the height of the image the seeds are in
+   */
+  SeedGrid(int[] seedX, int[] seedY, int width, int height) {
+    this.seedX = seedX;
+    this.seedY = seedY;
+    double area = (double) width * height * SEEDS_PER_CELL / Math.max(1, seedX.length);
+    this.cellSize = Math.max(1, (int) Math.sqrt(area));
+    this.columns = (width + cellSize - 1) / cellSize;
+    this.rows = (height + cellSize - 1) / cellSize;
+
+    // Bucket the seeds by cell with a counting sort, which keeps each cell's seeds in index order.
+    this.cellStart = new int[columns * rows + 1];
+    for (int i = 0; i < seedX.length; i += 1) {
+      cellStart[cellOf(seedX[i], seedY[i]) + 1] += 1;
+    }
+    for (int c = 0; c < columns * rows; c += 1) {
+      cellStart[c + 1] += cellStart[c];
+    }
+    this.cellSeeds = new int[seedX.length];
+    int[] next = new int[columns * rows];
+    for (int i = 0; i < seedX.length; i += 1) {
+      int cell = cellOf(seedX[i], seedY[i]);
+      cellSeeds[cellStart[cell] + next[cell]] = i;
+      next[cell] += 1;
+    }
+  }
+
+  private int cellOf(int x, int y) {
+    return (y / cellSize) * columns + x / cellSize;
+  }
+
+  /**
+   * Finds the seed nearest to the given pixel.
+   *
+   * @param x    the x-coordinate of the pixel
+   * @param y    the y-coordinate of the pixel
+   * @param hint a seed that is likely to be near the pixel, such as the one nearest to the pixel
+   *             before it, or -1 if there is none
+   * @return the index of the nearest seed, the lowest one if several are equally near
+   */
+  int nearest(int x, int y, int hint) {
+    int best = -1;
+    long bestDist = Long.MAX_VALUE;
+    if (hint >= 0) {
+      best = hint;
+      bestDist = distance(hint, x, y);
+    }
+    int cx = x / cellSize;
+    int cy = y / cellSize;
+    int maxRing = Math.max(Math.max(cx, columns - 1 - cx), Math.max(cy, rows - 1 - cy));
+    for (int ring = 0; ring <= maxRing; ring += 1) {
+      // Every cell in this ring is at least ring - 1 whole cells away along one axis.
+      long gap = (long) Math.max(0, ring - 1) * cellSize;
+      if (gap * gap > bestDist) {
+        break;
+      }
+      for (int gy = cy - ring; gy <= cy + ring; gy += 1) {
+        if (gy < 0 || gy >= rows) {
+          continue;
+        }
+        boolean edgeRow = gy == cy - ring || gy == cy + ring;
+        int step = edgeRow ? 1 : 2 * ring;
+        for (int gx = cx - ring; gx <= cx + ring; gx += Math.max(1, step)) {
+          if (gx < 0 || gx >= columns || cellDistance(gx, gy, x, y) > bestDist) {
+            continue;
+          }
+          int cell = gy * columns + gx;
+          for (int k = cellStart[cell]; k < cellStart[cell + 1]; k += 1) {
+            int seed = cellSeeds[k];
+            long dist = distance(seed, x, y);
+            if (dist < bestDist || (dist == bestDist && seed < best)) {
+              bestDist = dist;
+              best = seed;
+            }
+          }
+        }
+      }
+    }
+    return best;
+  }
+
+  private long distance(int seed, int x, int y) {
+    long dx = seedX[seed] - x;
+    long dy = seedY[seed] - y;
+    return dx * dx + dy * dy;
+  }
+
+  /**
+   * Gets the squared distance from the given pixel to the nearest pixel of the given cell.
+   */
+  private long cellDistance(int gx, int gy, int x, int y) {
+    long dx = Math.max(0, Math.max(gx * cellSize - x, x - (gx * cellSize + cellSize - 1)));
+    long dy = Math.max(0, Math.max(gy * cellSize - y, y - (gy * cellSize + cellSize - 1)));
+    return dx * dx + dy * dy;
+  }
+}
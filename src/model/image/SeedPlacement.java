@@ -0,0 +1,96 @@
+package model.image;
+
+import java.util.Random;
+
+/**
+ * Enumeration for the ways the seeds of a mosaic can be placed in an image.
+ */
+public enum SeedPlacement {
+  /**
+   * Every seed is placed at a uniformly random pixel, so seeds can clump together or coincide.
+   */
+  RANDOM,
+  /**
+   * The image is divided into a grid with about as many cells as seeds, and each seed is placed
+   * at a random pixel of its own cell, which spreads the seeds evenly with some variation.
+   */
+  JITTERED_GRID,
+  /**
+   * Seeds are placed one at a time at whichever of several random candidates is farthest from
+   * the seeds already placed, which keeps seeds apart like Poisson-disc sampling while always
+   * giving exactly the requested number of seeds.
+   */
+  POISSON_DISC;
+
+  /**
+   * Places the given number of seeds in an image of the given size.
+   *
+   * @param seeds  the number of seeds to be placed, at most width * height
+   * @param width  the width of the image
+   * @param height the height of the image
+   * @param rand   the source of randomness for the placement
+   * @param seedX  the array the x-coordinate of each seed is written to
+   * @param seedY  the array the y-coordinate of each seed is written to
+   */
+  void place(int seeds, int width, int height, Random rand, int[] seedX, int[] seedY) {
+    switch (this) {
+      case JITTERED_GRID:
+        placeJittered(seeds, width, height, rand, seedX, seedY);
+        break;
+      case POISSON_DISC:
+        new BestCandidateSampler(seeds, width, height).place(rand, seedX, seedY);
+        break;
+      default:
+        for (int i = 0; i < seeds; i += 1) {
+          seedX[i] = rand.nextInt(width);
+          seedY[i] = rand.nextInt(height);
+        }
+        break;
+    }
+  }
+
+  private static void placeJittered(int seeds, int width, int height, Random rand, int[] seedX,
+      int[] seedY) {
+    int columns = (int) Math.min(width,
+        Math.max(1, Math.ceil(Math.sqrt((double) seeds * width / height))));
+    int rows = Math.min(height, (seeds + columns - 1) / columns);
+    if ((long) columns * rows < seeds) {
+      columns = Math.min(width, (seeds + rows - 1) / rows);
+    }
+    // When the grid has more cells than seeds, the cells that get a seed are chosen at random so
+    // the empty ones are spread over the image.
+    int[] cells = new int[columns * rows];
+    for (int i = 0; i < cells.length; i += 1) {
+      cells[i] = i;
+    }
+    for (int i = 0; i < seeds; i += 1) {
+      int j = i + rand.nextInt(cells.length - i);
+      int cell = cells[j];
+      cells[j] = cells[i];
+      cells[i] = cell;
+      int column = cell % columns;
+      int row = cell / columns;
+      int left = (int) ((long) column * width / columns);
+      int right = (int) ((long) (column + 1) * width / columns);
+      int top = (int) ((long) row * height / rows);
+      int bottom = (int) ((long) (row + 1) * height / rows);
+      seedX[i] = left + rand.nextInt(right - left);
+      seedY[i] = top + rand.nextInt(bottom - top);
+    }
+  }
+
+  @Override
+  public String toString() {
+    switch (this) {
+      case RANDOM:
+        return "random";
+      case JITTERED_GRID:
+        return "jittered";
+      case POISSON_DISC:
+        return "poisson";
+      default:
+        break;
+    }
+    return "";
+  }
+}
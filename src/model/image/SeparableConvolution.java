@@ -0,0 +1,195 @@
+package model.image;
+
+/**
+ * Applies a {@link SeparableKernel} to packed ARGB pixels as a horizontal pass followed by a
+ * vertical pass for each of its terms. Intermediate results are kept unrounded in one float plane
+ * per channel, and every term is summed before the result is rounded, so no precision is lost
+ * between passes.
+ *
+ * <p>Border modes map the x and y coordinates independently, so applying them separately in each
+ * pass gives the same result as applying them to the full kernel.
+ *
+ * <p>When {@link Planes#ENABLED} is set, the source is unpacked into channel planes once so that
+ * the horizontal passes run as vectorizable loops as well as the vertical ones.
+ *
+ * <p>Each pass runs in parallel over bands of rows through {@link Parallel}. The vertical pass only
+ * starts once the horizontal pass has finished every row, since a band reads the rows around it.
+ */
+final class SeparableConvolution {
+
+  private SeparableConvolution() {
+  }
+
+  /**
+   * Convolves the given pixels with the given separable kernel.
+   *
+   * @param src    the packed ARGB values to be convolved
+   * @param width  the width of the image
+   * @param height the height of the image
+   * @param stride the distance in src between the start of one row and the next
+   * @param kernel the separable kernel to be applied
+   * @param border how pixels outside of the image are read
+   * @return a new tightly packed array holding the convolved image
+   */
+  static int[] convolve(int[] src, int width, int height, int stride, SeparableKernel kernel,
+      BorderMode border) {
+    float[][] temp = new float[3][width * height];
+    float[][] sum = new float[3][width * height];
+    float[][] planes = Planes.ENABLED ? Planes.unpack(src, width, height, stride) : null;
+    for (int t = 0; t < kernel.rank(); t += 1) {
+      float[] horizontal = kernel.horizontal[t];
+      float[] vertical = kernel.vertical[t];
+      if (planes != null) {
+        Parallel.forEachBand(width, height, (rowStart, rowEnd) ->
+            horizontalPlanarPass(planes, width, horizontal, border, temp, rowStart, rowEnd));
+      } else {
+        Parallel.forEachBand(width, height, (rowStart, rowEnd) -> horizontalPass(src, width,
+            height, stride, horizontal, border, temp, rowStart, rowEnd));
+      }
+      Parallel.forEachBand(width, height, (rowStart, rowEnd) ->
+          verticalPass(temp, width, height, vertical, border, sum, rowStart, rowEnd));
+    }
+    int[] dst = new int[width * height];
+    Parallel.forEachBand(width, height, (rowStart, rowEnd) -> {
+      for (int y = rowStart; y < rowEnd; y += 1) {
+        Planes.packRow(src, y * stride, sum[0], sum[1], sum[2], y * width, dst, y * width, width);
+      }
+    });
+    return dst;
+  }
+
+  /**
+   * Filters the rows in [rowStart, rowEnd) of the given channel planes horizontally, overwriting
+   * the matching rows of the channel planes in dst. The interior of each row is accumulated one
+   * tap at a time with vectorizable loops, adding taps in the same order as
+   * {@link #horizontalPass}.
+   */
+  static void horizontalPlanarPass(float[][] planes, int width, float[] weights,
+      BorderMode border, float[][] dst, int rowStart, int rowEnd) {
+    int radius = weights.length / 2;
+    int interiorLeft = Math.min(radius, width);
+    int interiorRight = Math.max(interiorLeft, width - radius);
+    for (int c = 0; c < 3; c += 1) {
+      float[] in = planes[c];
+      float[] out = dst[c];
+      for (int y = rowStart; y < rowEnd; y += 1) {
+        int row = y * width;
+        for (int x = interiorLeft; x < interiorRight; x += 1) {
+          out[row + x] = 0;
+        }
+        for (int i = 0; i < weights.length; i += 1) {
+          float weight = weights[i];
+          int offset = row + i - radius;
+          for (int x = interiorLeft; x < interiorRight; x += 1) {
+            out[row + x] += in[offset + x] * weight;
+          }
+        }
+        for (int x = 0; x < interiorLeft; x += 1) {
+          out[row + x] = horizontalEdge(in, row, width, weights, border, x);
+        }
+        for (int x = interiorRight; x < width; x += 1) {
+          out[row + x] = horizontalEdge(in, row, width, weights, border, x);
+        }
+      }
+    }
+  }
+
+  private static float horizontalEdge(float[] in, int row, int width, float[] weights,
+      BorderMode border, int x) {
+    int radius = weights.length / 2;
+    float sum = 0;
+    for (int i = 0; i < weights.length; i += 1) {
+      int srcX = border.map(x + i - radius, width);
+      if (srcX >= 0) {
+        sum += in[row + srcX] * weights[i];
+      }
+    }
+    return sum;
+  }
+
+  /**
+   * Filters the rows in [rowStart, rowEnd) of src horizontally, overwriting the matching rows of
+   * the channel planes in dst.
+   */
+  static void horizontalPass(int[] src, int width, int height, int stride, float[] weights,
+      BorderMode border, float[][] dst, int rowStart, int rowEnd) {
+    int radius = weights.length / 2;
+    int interiorLeft = Math.min(radius, width);
+    int interiorRight = Math.max(interiorLeft, width - radius);
+    for (int y = rowStart; y < rowEnd; y += 1) {
+      int row = y * stride;
+      int out = y * width;
+      for (int x = 0; x < interiorLeft; x += 1) {
+        horizontalEdge(src, row, width, weights, border, dst, out, x);
+      }
+      for (int x = interiorLeft; x < interiorRight; x += 1) {
+        float red = 0;
+        float green = 0;
+        float blue = 0;
+        int start = row + x - radius;
+        for (int i = 0; i < weights.length; i += 1) {
+          int argb = src[start + i];
+          float weight = weights[i];
+          red += ((argb >> 16) & 0xFF) * weight;
+          green += ((argb >> 8) & 0xFF) * weight;
+          blue += (argb & 0xFF) * weight;
+        }
+        dst[0][out + x] = red;
+        dst[1][out + x] = green;
+        dst[2][out + x] = blue;
+      }
+      for (int x = interiorRight; x < width; x += 1) {
+        horizontalEdge(src, row, width, weights, border, dst, out, x);
+      }
+    }
+  }
+
+  private static void horizontalEdge(int[] src, int row, int width, float[] weights,
+      BorderMode border, float[][] dst, int out, int x) {
+    int radius = weights.length / 2;
+    float red = 0;
+    float green = 0;
+    float blue = 0;
+    for (int i = 0; i < weights.length; i += 1) {
+      int srcX = border.map(x + i - radius, width);
+      if (srcX < 0) {
+        continue;
+      }
+      int argb = src[row + srcX];
+      float weight = weights[i];
+      red += ((argb >> 16) & 0xFF) * weight;
+      green += ((argb >> 8) & 0xFF) * weight;
+      blue += (argb & 0xFF) * weight;
+    }
+    dst[0][out + x] = red;
+    dst[1][out + x] = green;
+    dst[2][out + x] = blue;
+  }
+
+  /**
+   * Filters the channel planes in src vertically into the rows in [rowStart, rowEnd) of the
+   * channel planes in dst, adding to the values already there.
+   */
+  static void verticalPass(float[][] src, int width, int height, float[] weights,
+      BorderMode border, float[][] dst, int rowStart, int rowEnd) {
+    int radius = weights.length / 2;
+    for (int c = 0; c < 3; c += 1) {
+      float[] in = src[c];
+      float[] out = dst[c];
+      for (int y = rowStart; y < rowEnd; y += 1) {
+        int outRow = y * width;
+        for (int j = 0; j < weights.length; j += 1) {
+          int srcY = border.map(y + j - radius, height);
+          if (srcY < 0) {
+            continue;
+          }
+          int inRow = srcY * width;
+          float weight = weights[j];
+          for (int x = 0; x < width; x += 1) {
+            out[outRow + x] += in[inRow + x] * weight;
+          }
+        }
+      }
+    }
+  }
+}
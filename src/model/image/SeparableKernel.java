@@ -0,0 +1,168 @@
+package model.image;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A {@link Kernel} decomposed into a sum of separable terms, each of which is the outer product of
+ * a vertical and a horizontal vector. Applying a term costs one horizontal pass and one vertical
+ * pass, which is O(width + height) work per pixel instead of O(width * height).
+ *
+ * <p>The decomposition is found with a singular value decomposition of the kernel. Terms are kept
+ * until the remaining terms are too small to move any output channel by more than a quarter of a
+ * level, so the separable result rounds to the same values as the full kernel in practice.
+ */
+final class SeparableKernel {
+
+  private static final double MAX_CHANNEL_ERROR = 0.25;
+  private static final int MAX_SWEEPS = 60;
+
+  final float[][] horizontal;
+  final float[][] vertical;
+
+  private SeparableKernel(float[][] horizontal, float[][] vertical) {
+    this.horizontal = horizontal;
+    this.vertical = vertical;
+  }
+
+  /**
+   * Gets the number of separable terms in this decomposition.
+   *
+   * @return the number of terms
+   */
+  int rank() {
+    return horizontal.length;
+  }
+
+  /**
+   * Gets the work per pixel of applying this decomposition, counted in the same multiply-adds as
+   * the weights of a kernel. Each term also pays for writing and reading back an intermediate
+   * value per channel.
+   *
+   * @param kernel the kernel this decomposition was made from
+   * @return the work per pixel of the separable passes
+   */
+  int cost(Kernel kernel) {
+    return rank() * (kernel.getWidth() + kernel.getHeight() + 2);
+  }
+
+  /**
+   * Gets whether applying this decomposition is cheaper than applying the given kernel directly.
+   *
+   * @param kernel the kernel this decomposition was made from
+   * @return true if the separable passes do less work per pixel
+   */
+  boolean isCheaperThan(Kernel kernel) {
+    return cost(kernel) < kernel.getWidth() * kernel.getHeight();
+  }
+
+  /**
+   * Decomposes the given kernel into separable terms.
+   *
+   * @param kernel the kernel to be decomposed
+   * @return the decomposition of the kernel
+   */
+  static SeparableKernel decompose(Kernel kernel) {
+    int rows = kernel.getHeight();
+    int cols = kernel.getWidth();
+    double[][] u = new double[rows][cols];
+    double[][] v = new double[cols][cols];
+    for (int y = 0; y < rows; y += 1) {
+      for (int x = 0; x < cols; x += 1) {
+        u[y][x] = kernel.getWeight(x, y);
+      }
+    }
+    for (int i = 0; i < cols; i += 1) {
+      v[i][i] = 1;
+    }
+    orthogonalizeColumns(u, v);
+
+    double[] sigma = new double[cols];
+    Integer[] order = new Integer[cols];
+    for (int x = 0; x < cols; x += 1) {
+      double sum = 0;
+      for (int y = 0; y < rows; y += 1) {
+        sum += u[y][x] * u[y][x];
+      }
+      sigma[x] = Math.sqrt(sum);
+      order[x] = x;
+    }
+    Arrays.sort(order, (a, b) -> Double.compare(sigma[b], sigma[a]));
+
+    double tolerance = MAX_CHANNEL_ERROR / (255 * Math.sqrt(rows * cols));
+    List<float[]> horizontal = new ArrayList<>();
+    List<float[]> vertical = new ArrayList<>();
+    for (int i = 0; i < cols; i += 1) {
+      double remaining = 0;
+      for (int j = i; j < cols; j += 1) {
+        remaining += sigma[order[j]] * sigma[order[j]];
+      }
+      if (Math.sqrt(remaining) <= tolerance) {
+        break;
+      }
+      int term = order[i];
+      float[] h = new float[cols];
+      float[] vert = new float[rows];
+      for (int x = 0; x < cols; x += 1) {
+        h[x] = (float) v[x][term];
+      }
+      for (int y = 0; y < rows; y += 1) {
+        vert[y] = (float) u[y][term];
+      }
+      horizontal.add(h);
+      vertical.add(vert);
+    }
+    return new SeparableKernel(horizontal.toArray(new float[0][]),
+        vertical.toArray(new float[0][]));
+  }
+
+  /**
+   * Runs one-sided Jacobi rotations on the columns of u until they are mutually orthogonal,
+   * applying the same rotations to v. Afterwards the original matrix equals u * transpose(v), and
+   * each column of u is a left singular vector scaled by its singular value.
+   */
+  private static void orthogonalizeColumns(double[][] u, double[][] v) {
+    int rows = u.length;
+    int cols = v.length;
+    for (int sweep = 0; sweep < MAX_SWEEPS; sweep += 1) {
+      boolean rotated = false;
+      for (int p = 0; p < cols - 1; p += 1) {
+        for (int q = p + 1; q < cols; q += 1) {
+          double alpha = 0;
+          double beta = 0;
+          double gamma = 0;
+          for (int i = 0; i < rows; i += 1) {
+            alpha += u[i][p] * u[i][p];
+            beta += u[i][q] * u[i][q];
+            gamma += u[i][p] * u[i][q];
+          }
+          if (Math.abs(gamma) <= 1e-12 * Math.sqrt(alpha * beta)) {
+            continue;
+          }
+          rotated = true;
+          double zeta = (beta - alpha) / (2 * gamma);
+          double t = Math.signum(zeta) / (Math.abs(zeta) + Math.sqrt(1 + zeta * zeta));
+          if (zeta == 0) {
+            t = 1;
+          }
+          double c = 1 / Math.sqrt(1 + t * t);
+          double s = c * t;
+          for (int i = 0; i < rows; i += 1) {
+            double up = u[i][p];
+            u[i][p] = c * up - s * u[i][q];
+            u[i][q] = s * up + c * u[i][q];
+          }
+          for (int i = 0; i < cols; i += 1) {
+            double vp = v[i][p];
+            v[i][p] = c * vp - s * v[i][q];
+            v[i][q] = s * vp + c * v[i][q];
+          }
+        }
+      }
+      if (!rotated) {
+        return;
+      }
+    }
+  }
+}
@@ -0,0 +1,112 @@
+package model.pixel;
+
+/**
+ * A utility class for working with pixels packed into a single {@code int} in ARGB order, with
+ * alpha in the highest 8 bits and blue in the lowest 8 bits.
+ */
+public final class ArgbUtil {
+
+  private ArgbUtil() {
+  }
+
+  /**
+   * Packs the given channel values into a single ARGB value. Each value is expected to be within
+   * [0, 255].
+   *
+   * @param alpha the alpha value
+   * @param red   the red value
+   * @param green the green value
+   * @param blue  the blue value
+   * @return the packed ARGB value
+   */
+  public static int pack(int alpha, int red, int green, int blue) {
+    return (alpha << 24) | (red << 16) | (green << 8) | blue;
+  }
+
+  /**
+   * Gets the alpha value of the given packed pixel.
+   *
+   * @param argb the packed pixel
+   * @return the alpha value of the pixel
+   */
+  public static int alpha(int argb) {
+    return argb >>> 24;
+  }
+
+  /**
+   * Gets the red value of the given packed pixel.
+   *
+   * @param argb the packed pixel
+   * @return the red value of the pixel
+   */
+  public static int red(int argb) {
+    return (argb >> 16) & 0xFF;
+  }
+
+  /**
+   * Gets the green value of the given packed pixel.
+   *
+   * @param argb the packed pixel
+   * @return the green value of the pixel
+   */
+  public static int green(int argb) {
+    return (argb >> 8) & 0xFF;
+  }
+
+  /**
+   * Gets the blue value of the given packed pixel.
+   *
+   * @param argb the packed pixel
+   * @return the blue value of the pixel
+   */
+  public static int blue(int argb) {
+    return argb & 0xFF;
+  }
+
+  /**
+   * Gets the luminance of the pixel, using the same weights as the greyscale operation rounded to
+   * the nearest value.
+   *
+   * @param argb the packed pixel
+   * @return the luminance of the pixel, between 0 and 255
+   */
+  public static int luminance(int argb) {
+    return (red(argb) * 13933 + green(argb) * 46871 + blue(argb) * 4732 + (1 << 15)) >> 16;
+  }
+
+  /**
+   * Clamps the given value to the range [0, 255].
+   *
+   * @param value the value to be clamped
+   * @return the clamped value
+   */
+  public static int clamp(int value) {
+    if (value > 255) {
+      return 255;
+    } else if (value < 0) {
+      return 0;
+    } else {
+      return value;
+    }
+  }
+
+  /**
+   * Packs the given {@link Pixel} into a single ARGB value.
+   *
+   * @param pixel the pixel to be packed
+   * @return the packed ARGB value
+   */
+  public static int fromPixel(Pixel pixel) {
+    return pack(pixel.getAlpha(), pixel.getRed(), pixel.getGreen(), pixel.getBlue());
+  }
+
+  /**
+   * Unpacks the given ARGB value into a new {@link Pixel}.
+   *
+   * @param argb the packed pixel
+   * @return a new {@link TransparentPixelImpl} with the same channel values
+   */
+  public static Pixel toPixel(int argb) {
+    return new TransparentPixelImpl(red(argb), green(argb), blue(argb), alpha(argb));
+  }
+}
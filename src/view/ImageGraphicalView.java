@@ -21,6 +21,7 @@ public class ImageGraphicalView extends JFrame implements GraphicalView {
 
   private final JMenuBar menuBar;
   private JLabel image;
+  private BufferedImage display;
 
   private JMenuItem importImage;
   private JMenuItem importLayered;
@@ -73,8 +74,9 @@ public class ImageGraphicalView extends JFrame implements GraphicalView {
 
     this.remove(this.image);
 
-    BufferedImage newImage = img.toBufferedImage();
-    this.image = new JLabel(new ImageIcon(newImage));
+    // The old label is removed first, so its image can be overwritten with the new one.
+    display = img.toBufferedImage(display);
+    this.image = new JLabel(new ImageIcon(display));
     this.add(this.image);
     this.revalidate();
   }
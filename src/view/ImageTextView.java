@@ -29,12 +29,12 @@ public class ImageTextView implements SimpleImageTextView {
   @Override
   public String toString() {
     StringBuilder sb = new StringBuilder();
-    sb.append("width: " + image.getPixels().size()
-        + "\nheight: " + image.getPixels().get(0).size() + "\n");
+    sb.append("width: " + image.getWidth()
+        + "\nheight: " + image.getHeight() + "\n");
 
-    for (int i = 0; i < image.getPixels().size(); i += 1) {
+    for (int i = 0; i < image.getWidth(); i += 1) {
       sb.append("\n NEXT COLUMN \n \n");
-      for (int j = 0; j < image.getPixels().get(i).size(); j += 1) {
+      for (int j = 0; j < image.getHeight(); j += 1) {
         sb.append(image.getPixelAt(i, j).toString());
         sb.append("\n");
       }
@@ -0,0 +1,162 @@
+package controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import controller.command.LoadProject;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import model.Layer;
+import model.image.Image;
+import model.image.LayeredImage;
+import model.image.LayeredImageImpl;
+import model.image.PackedImage;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link ProjectFile}.
+ */
+public class ProjectFileTest {
+
+  private static final int WIDTH = 40;
+  private static final int HEIGHT = 30;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  /**
+   * Makes an image of random pixels, which deflate cannot make smaller.
+   */
+  private static PackedImage noiseImage(long seed) {
+    Random rand = new Random(seed);
+    int[] pixels = new int[WIDTH * HEIGHT];
+    for (int i = 0; i < pixels.length; i += 1) {
+      pixels[i] = rand.nextInt();
+    }
+    return new PackedImage(WIDTH, HEIGHT, WIDTH, pixels);
+  }
+
+  /**
+   * Makes an image of smooth gradients, which deflate makes much smaller.
+   */
+  private static PackedImage gradientImage() {
+    int[] pixels = new int[WIDTH * HEIGHT];
+    for (int y = 0; y < HEIGHT; y += 1) {
+      for (int x = 0; x < WIDTH; x += 1) {
+        pixels[y * WIDTH + x] = 0xFF000000 | (x * 6 << 16) | (y * 8 << 8) | 0x40;
+      }
+    }
+    return new PackedImage(WIDTH, HEIGHT, WIDTH, pixels);
+  }
+
+  private static List<Layer> layers(Image... images) {
+    List<Layer> layers = new ArrayList<>();
+    for (int i = 0; i < images.length; i += 1) {
+      layers.add(new Layer(images[i], i + 1, String.valueOf((char) ('a' + i))));
+    }
+    return layers;
+  }
+
+  private static void flipLastByte(Path path) throws IOException {
+    try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+      file.seek(file.length() - 1);
+      int b = file.read();
+      file.seek(file.length() - 1);
+      file.write(b ^ 0xFF);
+    }
+  }
+
+  @Test
+  public void testRawAndDeflatedLayersRoundTrip() throws IOException {
+    Path path = folder.getRoot().toPath().resolve("both.lyr");
+    ProjectFile.write(layers(noiseImage(1), gradientImage()), path);
+    LayeredImage image = ProjectFile.read(path);
+    assertEquals(2, image.getLayers().size());
+    image.setCurrent("a");
+    assertEquals(noiseImage(1), image.getLayerAt(0).getImage());
+    assertEquals(gradientImage(), image.getLayerAt(1).getImage());
+  }
+
+  @Test
+  public void testSmoothLayerIsCompressed() throws IOException {
+    Path path = folder.getRoot().toPath().resolve("smooth.lyr");
+    ProjectFile.write(layers(gradientImage()), path);
+    assertTrue(Files.size(path) < WIDTH * HEIGHT * 4);
+    assertEquals(gradientImage(), ProjectFile.readLayer(path, "a"));
+  }
+
+  @Test
+  public void testVisibilityAndCurrentLayerRoundTrip() throws IOException {
+    ArrayList<Layer> saved = new ArrayList<>(layers(noiseImage(1), noiseImage(2)));
+    LayeredImage image = new LayeredImageImpl(saved);
+    image.setInvisible("a");
+    image.setCurrent("b");
+    String base = folder.getRoot().toPath().resolve("flags").toString();
+    image.exportProject(base);
+
+    ArrayList<Layer> start = new ArrayList<>(layers(gradientImage()));
+    LayeredImage loaded = new LayeredImageImpl(start);
+    new LoadProject(base + ".lyr").goCmd(loaded);
+    assertEquals(2, loaded.getLayers().size());
+    // The current layer is "b", which is visible, so it is shown.
+    assertEquals(noiseImage(2).getARGB(3, 4), loaded.getARGB(3, 4));
+    assertNotNull(loaded.toBufferedImage());
+    // Layer "a" was made transparent and invisible, so it is not shown once it is made current.
+    loaded.setCurrent("a");
+    assertEquals(noiseImage(1).getARGB(3, 4) & 0x00FFFFFF, loaded.getARGB(3, 4));
+    assertNull(loaded.toBufferedImage());
+  }
+
+  @Test
+  public void testSavingOverOpenFileKeepsUnreadLayers() throws IOException {
+    Path path = folder.getRoot().toPath().resolve("over.lyr");
+    ProjectFile.write(layers(noiseImage(1), noiseImage(2)), path);
+    LayeredImage image = ProjectFile.read(path);
+    image.setCurrent("a");
+    image.toGreyscale();
+    Image greyscale = image.getLayerAt(0).getImage();
+    image.exportProject(path.toString().substring(0, path.toString().length() - 4));
+
+    image.setCurrent("b");
+    assertEquals(noiseImage(2), image.getLayerAt(1).getImage());
+    assertEquals(greyscale, ProjectFile.readLayer(path, "a"));
+    assertEquals(noiseImage(2), ProjectFile.readLayer(path, "b"));
+  }
+
+  @Test
+  public void testChecksumCatchesFlippedByte() throws IOException {
+    Path path = folder.getRoot().toPath().resolve("flipped.lyr");
+    ProjectFile.write(layers(noiseImage(1)), path);
+    flipLastByte(path);
+    try {
+      ProjectFile.readLayer(path, "a");
+      fail("A corrupted layer was read");
+    } catch (IOException e) {
+      assertEquals("Layer a is corrupted", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testReadLayerFindsLayerByName() throws IOException {
+    Path path = folder.getRoot().toPath().resolve("named.lyr");
+    ProjectFile.write(layers(noiseImage(1), gradientImage(), noiseImage(3)), path);
+    assertEquals(noiseImage(3), ProjectFile.readLayer(path, "c"));
+    assertEquals(gradientImage(), ProjectFile.readLayer(path, "b"));
+    try {
+      ProjectFile.readLayer(path, "d");
+      fail("A missing layer was read");
+    } catch (IOException e) {
+      assertEquals("Project has no layer named d", e.getMessage());
+    }
+  }
+}
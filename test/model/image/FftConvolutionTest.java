@@ -0,0 +1,73 @@
+package model.image;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests that {@link FftConvolution} gives the same image as direct convolution.
+ */
+public class FftConvolutionTest {
+
+  private static final int WIDTH = 67;
+  private static final int HEIGHT = 45;
+
+  @After
+  public void clearMethod() {
+    System.clearProperty("image.convolution");
+  }
+
+  private static float[] randomWeights(int taps, Random rand) {
+    float[] weights = new float[taps];
+    for (int i = 0; i < taps; i += 1) {
+      weights[i] = (rand.nextFloat() + 0.5f) / taps;
+    }
+    return weights;
+  }
+
+  private static void assertAgrees(int kernelWidth, int kernelHeight, int stride) {
+    Random rand = new Random(kernelWidth * 31 + kernelHeight);
+    int[] src = new int[stride * HEIGHT];
+    for (int i = 0; i < src.length; i += 1) {
+      src[i] = rand.nextInt();
+    }
+    Kernel kernel = new Kernel(kernelWidth, kernelHeight,
+        randomWeights(kernelWidth * kernelHeight, rand));
+    System.setProperty("image.convolution", "direct");
+    for (BorderMode border : BorderMode.values()) {
+      int[] direct = Convolution.convolve(src, WIDTH, HEIGHT, stride, kernel, border);
+      int[] fft = FftConvolution.convolve(src, WIDTH, HEIGHT, stride, kernel, border);
+      for (int i = 0; i < direct.length; i += 1) {
+        assertEquals(direct[i] >>> 24, fft[i] >>> 24);
+        for (int shift = 0; shift < 24; shift += 8) {
+          int difference = Math.abs(((direct[i] >> shift) & 0xFF) - ((fft[i] >> shift) & 0xFF));
+          assertTrue(kernelWidth + "x" + kernelHeight + " " + border + " differs by "
+              + difference + " at pixel " + i, difference <= 1);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testSmallKernelAgrees() {
+    assertAgrees(5, 5, WIDTH);
+  }
+
+  @Test
+  public void testKernelAboveCrossoverAgrees() {
+    assertAgrees(13, 13, WIDTH);
+  }
+
+  @Test
+  public void testRectangularKernelAgrees() {
+    assertAgrees(7, 15, WIDTH);
+  }
+
+  @Test
+  public void testKernelWiderThanImageAgrees() {
+    assertAgrees(71, 3, WIDTH + 5);
+  }
+}
@@ -0,0 +1,69 @@
+package model.image;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import model.Layer;
+import org.junit.Test;
+
+/**
+ * Tests for {@link LazyImage} and how it is used by layered images.
+ */
+public class LazyImageTest {
+
+  private static PackedImage colorImage() {
+    PackedImage image = new PackedImage(3, 2);
+    for (int y = 0; y < 2; y += 1) {
+      for (int x = 0; x < 3; x += 1) {
+        image.setARGB(x, y, 0xFF000000 | (x * 80 << 16) | (y * 120 << 8) | 40);
+      }
+    }
+    return image;
+  }
+
+  @Test
+  public void testTurningLazyModeOffRunsOperations() {
+    ArrayList<Layer> layers = new ArrayList<>();
+    layers.add(new Layer(colorImage(), 1, "first"));
+    LayeredImage layered = new LayeredImageImpl(layers);
+    layered.setLazy(true);
+    layered.toGreyscale();
+    assertTrue(layers.get(0).viewImage() instanceof LazyImage);
+    layered.setLazy(false);
+    layered.toSepia();
+    assertFalse(layers.get(0).viewImage() instanceof LazyImage);
+
+    PackedImage expected = colorImage();
+    expected.toGreyscale();
+    expected.toSepia();
+    assertEquals(expected, layers.get(0).viewImage());
+  }
+
+  @Test
+  public void testEqualityWithPackedImageHoldsBothWays() {
+    PackedImage packed = colorImage();
+    packed.toGreyscale();
+    Image lazy = LazyImage.of(colorImage());
+    lazy.toGreyscale();
+    Image deferred = new DeferredImage(3, 2, () -> packed.copy());
+    assertTrue(lazy.equals(packed));
+    assertTrue(packed.equals(lazy));
+    assertTrue(deferred.equals(packed));
+    assertTrue(packed.equals(deferred));
+    assertEquals(packed.hashCode(), lazy.hashCode());
+
+    assertFalse(colorImage().equals(lazy));
+    assertFalse(lazy.equals(colorImage()));
+  }
+
+  @Test
+  public void testLayerEqualityHoldsBothWays() {
+    PackedImage packed = colorImage();
+    Layer plain = new Layer(packed, 1, "first");
+    Layer lazy = new Layer(LazyImage.of(packed.copy()), 1, "first");
+    assertTrue(plain.equals(lazy));
+    assertTrue(lazy.equals(plain));
+  }
+}
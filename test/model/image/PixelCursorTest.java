@@ -0,0 +1,109 @@
+package model.image;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import model.Layer;
+import org.junit.Test;
+
+/**
+ * Tests for {@link PixelCursor}.
+ */
+public class PixelCursorTest {
+
+  private static final int BLACK = 0xFF000000;
+  private static final int GREY = 0xFF222222;
+
+  private static PackedImage blackImage() {
+    PackedImage image = new PackedImage(2, 2);
+    for (int y = 0; y < 2; y += 1) {
+      for (int x = 0; x < 2; x += 1) {
+        image.setARGB(x, y, BLACK);
+      }
+    }
+    return image;
+  }
+
+  @Test
+  public void testCursorWritesReachImage() {
+    PackedImage image = blackImage();
+    PixelCursor cursor = image.cursor();
+    while (cursor.next()) {
+      cursor.setARGB(GREY);
+    }
+    for (int y = 0; y < 2; y += 1) {
+      for (int x = 0; x < 2; x += 1) {
+        assertEquals(GREY, image.getARGB(x, y));
+      }
+    }
+  }
+
+  @Test
+  public void testCopyMadeBeforeCursorIsUnchanged() {
+    PackedImage image = blackImage();
+    Image copy = image.copy();
+    PixelCursor cursor = image.cursor();
+    while (cursor.next()) {
+      cursor.setARGB(GREY);
+    }
+    assertEquals(BLACK, copy.getARGB(0, 0));
+    assertEquals(BLACK, copy.getARGB(1, 1));
+    assertEquals(GREY, image.getARGB(1, 1));
+  }
+
+  @Test
+  public void testCopyMadeBetweenWritesIsUnchanged() {
+    PackedImage image = blackImage();
+    PixelCursor cursor = image.cursor();
+    cursor.next();
+    cursor.setARGB(GREY);
+    Image copy = image.copy();
+    cursor.next();
+    cursor.setARGB(GREY);
+    assertEquals(GREY, copy.getARGB(0, 0));
+    assertEquals(BLACK, copy.getARGB(1, 0));
+    assertEquals(GREY, image.getARGB(1, 0));
+  }
+
+  @Test
+  public void testStatisticsAreDroppedBetweenWrites() {
+    PackedImage image = blackImage();
+    PixelCursor cursor = image.cursor();
+    cursor.next();
+    cursor.setARGB(GREY);
+    assertEquals(1, image.histogram().getCount(Histogram.RED, 0x22));
+    cursor.next();
+    cursor.setARGB(GREY);
+    assertEquals(2, image.histogram().getCount(Histogram.RED, 0x22));
+  }
+
+  @Test
+  public void testCopyOfWrittenImageIsUnchangedByWrites() {
+    PackedImage image = blackImage();
+    image.setARGB(0, 0, GREY);
+    PackedImage copy = (PackedImage) image.copy();
+    Image copyOfCopy = copy.copy();
+    image.setARGB(1, 0, GREY);
+    copy.setARGB(1, 1, GREY);
+    assertEquals(BLACK, copy.getARGB(1, 0));
+    assertEquals(BLACK, copyOfCopy.getARGB(1, 0));
+    assertEquals(BLACK, copyOfCopy.getARGB(1, 1));
+    assertEquals(GREY, copyOfCopy.getARGB(0, 0));
+  }
+
+  @Test
+  public void testLayerCopyMadeBetweenWritesIsUnchanged() {
+    ArrayList<Layer> layers = new ArrayList<>();
+    layers.add(new Layer(blackImage(), 1, "first"));
+    LayeredImage layered = new LayeredImageImpl(layers);
+    PixelCursor cursor = layered.cursor();
+    cursor.next();
+    cursor.setARGB(GREY);
+    Image snapshot = layered.getLayerAt(0).getImage();
+    cursor.next();
+    cursor.setARGB(GREY);
+    assertEquals(GREY, snapshot.getARGB(0, 0));
+    assertEquals(BLACK, snapshot.getARGB(1, 0));
+    assertEquals(GREY, layered.getLayerAt(0).getImage().getARGB(1, 0));
+  }
+}